@@ -0,0 +1,28 @@
+package com.filecopier.plugin;
+
+import com.intellij.openapi.vfs.VirtualFile;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Destination that {@link FileBundler} writes a bundle to
+ */
+interface BundleOutput extends Closeable {
+    void append(CharSequence text) throws IOException;
+
+    /**
+     * Copies the body of a file verbatim, if this output can do so without
+     * decoding it; returns false to have the bundler append it as text
+     */
+    default boolean transferBody(VirtualFile file) throws IOException {
+        return false;
+    }
+
+    /**
+     * Marks the end of a file, folder heading or other self-contained section;
+     * outputs that split the bundle prefer to split here
+     */
+    default void endSection() throws IOException {
+    }
+}
@@ -0,0 +1,168 @@
+package com.filecopier.plugin;
+
+import com.filecopier.plugin.FileCopierService.FileItem;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Formats selected files into their bundle sections in the background as soon
+ * as they are selected, so a copy only has to concatenate finished chunks.
+ * Chunks are validated against the file's modification stamp and dropped on
+ * VFS changes; large files and anything beyond the memory budget are left to
+ * the copy task.
+ */
+@Service
+public final class BundlePrewarmer implements Disposable {
+    private static final long MAX_FILE_SIZE = 1024 * 1024;
+
+    /**
+     * A formatted file section and the file state it was read from
+     */
+    private static final class Chunk {
+        final String relativePath;
+        final long modificationStamp;
+        final String text;
+
+        Chunk(String relativePath, long modificationStamp, String text) {
+            this.relativePath = relativePath;
+            this.modificationStamp = modificationStamp;
+            this.text = text;
+        }
+    }
+
+    private final Project project;
+    private final Map<VirtualFile, Chunk> chunks = new ConcurrentHashMap<>();
+    private final AtomicLong cachedChars = new AtomicLong();
+    private final ExecutorService prewarmExecutor =
+            AppExecutorUtil.createBoundedApplicationPoolExecutor("FileCopier Prewarm", 1);
+
+    public BundlePrewarmer(Project project) {
+        this.project = project;
+
+        project.getMessageBus().connect(this).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+            @Override
+            public void after(@NotNull List<? extends VFileEvent> events) {
+                if (chunks.isEmpty()) return;
+
+                boolean removed = false;
+                for (VFileEvent event : events) {
+                    VirtualFile file = event.getFile();
+                    if (file == null) continue;
+
+                    // Covers content changes, renames, moves and deletes of files and folders
+                    if (file.isDirectory()) {
+                        String prefix = file.getPath() + "/";
+                        removed |= chunks.keySet().removeIf(cached -> cached.getPath().startsWith(prefix));
+                    } else {
+                        removed |= chunks.remove(file) != null;
+                    }
+                }
+                if (removed) recount();
+            }
+        });
+    }
+
+    /**
+     * Gets the prewarmer for the specified project
+     */
+    public static BundlePrewarmer getInstance(Project project) {
+        return project.getService(BundlePrewarmer.class);
+    }
+
+    /**
+     * Starts formatting the files of a newly selected file or folder
+     */
+    public void prewarm(FileItem item) {
+        if (item.getKind() != FileItem.Kind.FILE && item.getKind() != FileItem.Kind.DIRECTORY) return;
+
+        prewarmExecutor.execute(() -> {
+            Thread thread = Thread.currentThread();
+            int priority = thread.getPriority();
+            thread.setPriority(Thread.MIN_PRIORITY);
+            try {
+                ContentRoots roots = ContentRoots.collect(project);
+                VirtualFile file = roots.resolve(item.getPath());
+                if (file == null || !file.isValid()) return;
+
+                if (!file.isDirectory()) {
+                    warm(item.getPath(), file);
+                } else if (item.isDirectory()) {
+                    PathQuery filter = item.getFilter() != null ? PathQuery.compile(item.getFilter()) : null;
+                    roots.walk(file, (relative, child, ignored) -> {
+                        if (child.isDirectory()) return hasBudget() && (filter == null || filter.mayContain(relative));
+                        if (filter == null || filter.matches(relative, false)) warm(relative, child);
+                        return hasBudget();
+                    });
+                }
+            } finally {
+                thread.setPriority(priority);
+            }
+        });
+    }
+
+    /**
+     * The formatted section of the file if it is still current, otherwise null
+     */
+    String getChunk(String relativePath, VirtualFile file) {
+        Chunk chunk = chunks.get(file);
+        if (chunk == null || chunk.modificationStamp != file.getModificationStamp()
+                || !chunk.relativePath.equals(relativePath)) {
+            return null;
+        }
+        return chunk.text;
+    }
+
+    /**
+     * Drops all chunks, e.g. after the selection was cleared
+     */
+    public void clear() {
+        chunks.clear();
+        cachedChars.set(0);
+    }
+
+    private void warm(String relativePath, VirtualFile file) {
+        if (!hasBudget() || file.getLength() > MAX_FILE_SIZE || file.getFileType().isBinary()) return;
+        if (getChunk(relativePath, file) != null) return;
+
+        long stamp = file.getModificationStamp();
+        try {
+            String text = FileBundler.formatFile(relativePath, file);
+            Chunk previous = chunks.put(file, new Chunk(relativePath, stamp, text));
+            cachedChars.addAndGet(text.length() - (previous != null ? previous.text.length() : 0));
+        } catch (IOException e) {
+            // The copy task reads the file again and reports the error
+        }
+    }
+
+    private boolean hasBudget() {
+        return cachedChars.get() < FileCopierSettings.getInstance().getMemoryBudgetChars();
+    }
+
+    private void recount() {
+        long total = 0;
+        for (Chunk chunk : chunks.values()) {
+            total += chunk.text.length();
+        }
+        cachedChars.set(total);
+    }
+
+    @Override
+    public void dispose() {
+        prewarmExecutor.shutdownNow();
+        clear();
+    }
+}
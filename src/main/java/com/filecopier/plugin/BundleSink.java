@@ -0,0 +1,191 @@
+package com.filecopier.plugin;
+
+import com.intellij.openapi.util.io.FileUtil;
+
+import java.awt.datatransfer.Clipboard;
+import java.awt.datatransfer.ClipboardOwner;
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.StringSelection;
+import java.awt.datatransfer.Transferable;
+import java.awt.datatransfer.UnsupportedFlavorException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.logging.Logger;
+
+/**
+ * Clipboard destination of a bundle. Text is kept in memory up to the memory
+ * budget; beyond it the bundle is streamed into a temp file through a buffered
+ * {@link FileChannel}, and the clipboard receives a handle that only reads the
+ * file back when the content is actually pasted.
+ */
+final class BundleSink implements BundleOutput {
+    private static final Logger LOGGER = Logger.getLogger(BundleSink.class.getName());
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final long memoryBudgetChars;
+    private final StringBuilder memory = new StringBuilder();
+    private File spillFile;
+    private FileChannel channel;
+    private ByteBuffer buffer;
+    private CharsetEncoder encoder;
+
+    BundleSink(long memoryBudgetChars) {
+        this.memoryBudgetChars = memoryBudgetChars;
+    }
+
+    @Override
+    public void append(CharSequence text) throws IOException {
+        if (channel == null && memory.length() + text.length() <= memoryBudgetChars) {
+            memory.append(text);
+            return;
+        }
+        if (channel == null) {
+            spill();
+        }
+        encode(text);
+    }
+
+    boolean isSpilled() {
+        return spillFile != null;
+    }
+
+    private void spill() throws IOException {
+        spillFile = FileUtil.createTempFile("filecopier-bundle", ".txt", true);
+        channel = FileChannel.open(spillFile.toPath(), StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        encode(memory);
+        memory.setLength(0);
+        memory.trimToSize();
+    }
+
+    private void encode(CharSequence text) throws IOException {
+        CharBuffer in = CharBuffer.wrap(text);
+        encoder.reset();
+        while (true) {
+            CoderResult result = encoder.encode(in, buffer, true);
+            if (result.isOverflow()) {
+                drain();
+            } else {
+                break;
+            }
+        }
+        while (encoder.flush(buffer).isOverflow()) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null && channel.isOpen()) {
+            drain();
+            channel.close();
+        }
+    }
+
+    /**
+     * Deletes the spill file of a bundle that will not be used
+     */
+    void discard() {
+        try {
+            close();
+        } catch (IOException e) {
+            LOGGER.fine("Failed to close discarded bundle: " + e.getMessage());
+        }
+        if (spillFile != null) {
+            FileUtil.delete(spillFile);
+        }
+    }
+
+    /**
+     * Creates the clipboard contents for this bundle; call after {@link #close()}
+     */
+    Transferable toTransferable() {
+        if (spillFile == null) {
+            return new StringSelection(memory.toString());
+        }
+        return new SpilledBundle(spillFile, memoryBudgetChars);
+    }
+
+    /**
+     * Clipboard handle backed by the spill file. The text is streamed from the
+     * file on paste, file managers can paste the file itself, and the file is
+     * deleted once another application takes over the clipboard. The text is
+     * only offered as a string while it fits into the memory budget.
+     */
+    static final class SpilledBundle implements Transferable, ClipboardOwner {
+        private static final DataFlavor TEXT_STREAM_FLAVOR = createTextStreamFlavor();
+        private final File file;
+        private final DataFlavor[] flavors;
+
+        SpilledBundle(File file, long memoryBudgetChars) {
+            this.file = file;
+            // UTF-8 never takes fewer bytes than chars, so the file length bounds the string length
+            this.flavors = file.length() <= memoryBudgetChars
+                    ? new DataFlavor[]{TEXT_STREAM_FLAVOR, DataFlavor.stringFlavor, DataFlavor.javaFileListFlavor}
+                    : new DataFlavor[]{TEXT_STREAM_FLAVOR, DataFlavor.javaFileListFlavor};
+        }
+
+        private static DataFlavor createTextStreamFlavor() {
+            try {
+                return new DataFlavor("text/plain;charset=UTF-8;class=java.io.InputStream");
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public DataFlavor[] getTransferDataFlavors() {
+            return flavors.clone();
+        }
+
+        @Override
+        public boolean isDataFlavorSupported(DataFlavor flavor) {
+            return Arrays.asList(flavors).contains(flavor);
+        }
+
+        @Override
+        public Object getTransferData(DataFlavor flavor) throws UnsupportedFlavorException, IOException {
+            if (!isDataFlavorSupported(flavor)) {
+                throw new UnsupportedFlavorException(flavor);
+            }
+            if (TEXT_STREAM_FLAVOR.equals(flavor)) {
+                return Files.newInputStream(file.toPath());
+            }
+            if (DataFlavor.stringFlavor.equals(flavor)) {
+                return Files.readString(file.toPath(), StandardCharsets.UTF_8);
+            }
+            if (DataFlavor.javaFileListFlavor.equals(flavor)) {
+                return Collections.singletonList(file);
+            }
+            throw new UnsupportedFlavorException(flavor);
+        }
+
+        @Override
+        public void lostOwnership(Clipboard clipboard, Transferable contents) {
+            FileUtil.delete(file);
+        }
+    }
+}
@@ -2,25 +2,32 @@ package com.filecopier.plugin;
 
 import com.filecopier.plugin.FileCopierService.FileItem;
 import com.intellij.icons.AllIcons;
+import com.intellij.openapi.Disposable;
 import com.intellij.openapi.actionSystem.*;
 import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.fileChooser.FileChooser;
 import com.intellij.openapi.fileChooser.FileChooserDescriptor;
-import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.fileChooser.FileChooserFactory;
+import com.intellij.openapi.fileChooser.FileSaverDescriptor;
+import com.intellij.openapi.fileTypes.FileTypeManager;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.progress.Task;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.ComboBox;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileWrapper;
 import com.intellij.ui.JBColor;
 import com.intellij.ui.components.JBList;
 import com.intellij.ui.components.JBScrollPane;
 import com.intellij.ui.components.JBTextArea;
 import com.intellij.util.ui.JBUI;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.TestOnly;
 
-import java.awt.datatransfer.DataFlavor;
 import java.awt.event.ActionEvent;
 import java.awt.event.KeyListener;
 import javax.swing.*;
@@ -29,42 +36,56 @@ import javax.swing.border.CompoundBorder;
 import javax.swing.border.EmptyBorder;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
 import javax.swing.text.DefaultEditorKit;
 import java.awt.*;
 import java.awt.datatransfer.Clipboard;
+import java.awt.datatransfer.ClipboardOwner;
 import java.awt.datatransfer.StringSelection;
+import java.awt.datatransfer.Transferable;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 /**
  * Main chat panel UI component that implements the file searching and copying functionality
  */
-public class ChatPanel extends JPanel {
+public class ChatPanel extends JPanel implements Disposable {
     private static final Logger LOGGER = Logger.getLogger(ChatPanel.class.getName());
-    private GitIgnoreParser gitIgnoreParser;
     private final Project project;
     private final JBTextArea inputField;
     private final JPanel chatMessageContainer;
     private final JPanel suggestionPanel;
+    // Shown below the suggestions while they may be incomplete
+    private final JLabel suggestionNotice;
     private final JBList<FileSuggestion> suggestionList;
-    private final DefaultListModel<FileSuggestion> suggestionModel;
+    private final LazySuggestionModel suggestionModel;
     private final JBScrollPane scrollPane;
-    private final List<FileItem> selectedItems = new ArrayList<>();
+    private final SelectionStore selection;
+    private final Timer inputTimer;
+    private final JLabel statsLabel;
     private boolean navigatingSuggestions = false;
+    // Bumped for every search so that late results of an older query are dropped
+    private int searchGeneration = 0;
+    // Bumped for every selection stats lookup, so that an older lookup does not overwrite a newer one
+    private int statsGeneration = 0;
+    // Parts of the last multi-part copy, handed out one at a time
+    private MultiPartOutput bundleParts;
+    private int nextPartIndex = 0;
+    // The system clipboard, looked up on first use; tests run headless and substitute their own
+    private Clipboard clipboard;
 
     public ChatPanel(Project project) {
         LOGGER.warning("🚀 Logging works!");
         this.project = project;
+        this.selection = SelectionStore.getInstance(project);
         setLayout(new BorderLayout());
 
         chatMessageContainer = new JPanel();
@@ -81,6 +102,17 @@ public class ChatPanel extends JPanel {
         JPanel inputPanel = new JPanel(new BorderLayout());
         inputPanel.setBorder(JBUI.Borders.empty(10, 10, 10, 10));
 
+        // Live size of the selection, answered from the folder size index without reading files
+        statsLabel = new JLabel();
+        statsLabel.setForeground(JBColor.GRAY);
+        statsLabel.setBorder(JBUI.Borders.emptyBottom(5));
+        inputPanel.add(statsLabel, BorderLayout.NORTH);
+        DirectorySizeIndex sizeIndex = DirectorySizeIndex.getInstance(project);
+        sizeIndex.ensureStarted();
+        project.getMessageBus().connect(this).subscribe(DirectorySizeIndex.TOPIC,
+                () -> SwingUtilities.invokeLater(this::updateSelectionStats));
+        updateSelectionStats();
+
         inputField = new JBTextArea(3, 50);
         inputField.setBorder(BorderFactory.createCompoundBorder(
                 BorderFactory.createLineBorder(JBColor.border(), 1),
@@ -89,72 +121,18 @@ public class ChatPanel extends JPanel {
         inputField.setLineWrap(true);
         inputField.setWrapStyleWord(true);
 
+        // Typing bursts are coalesced into one suggestion update
+        inputTimer = new Timer(80, e -> handleInputChange());
+        inputTimer.setRepeats(false);
         inputField.getDocument().addDocumentListener(new DocumentListener() {
-            public void insertUpdate(DocumentEvent e) { handleInputChange(); }
-            public void removeUpdate(DocumentEvent e) { handleInputChange(); }
-            public void changedUpdate(DocumentEvent e) { handleInputChange(); }
-        });
-
-new PastePathAppender(inputField, project);
-
-
-// Replace the default Ctrl+V (paste) action
-        inputField.getInputMap().put(KeyStroke.getKeyStroke("control V"), "custom-paste");
-        inputField.addKeyListener(new KeyAdapter() {
-            public void keyPressed(KeyEvent e) {
-                if (e.isControlDown() && e.getKeyCode() == KeyEvent.VK_ENTER) {
-                    e.consume();
-                    copySelectedFilesToClipboard();
-                } else if ((e.getKeyCode() == KeyEvent.VK_DOWN || e.getKeyCode() == KeyEvent.VK_UP) && suggestionPanel.isVisible()) {
-                    e.consume();
-                    navigatingSuggestions = true;
-                    suggestionList.requestFocusInWindow();
-                    int size = suggestionList.getModel().getSize();
-                    if (size > 0) {
-                        int newIndex = e.getKeyCode() == KeyEvent.VK_DOWN ? 0 : size - 1;
-                        suggestionList.setSelectedIndex(newIndex);
-                        suggestionList.ensureIndexIsVisible(newIndex);
-                    }
-                } else if (e.getKeyCode() == KeyEvent.VK_V && e.isControlDown()) {
-                    SwingUtilities.invokeLater(() -> {
-                        try {
-                            String pastedText = (String) Toolkit.getDefaultToolkit().getSystemClipboard().getData(DataFlavor.stringFlavor);
-                            String filePath = getCurrentEditorRelativePath();
-                            if (filePath != null && !pastedText.isEmpty()) {
-                                String fullText = "#" + filePath + "\n" + pastedText;
-                                inputField.insert(fullText + "\n", inputField.getCaretPosition());
-
-                                // ✅ Also add it visibly to chat
-                                addUserMessage("📋 Pasted from `" + filePath + "`:\n\n" + pastedText);
-                            }
-                        } catch (Exception ignored) {}
-                    });
-                }
-            }
-        });
-        inputField.addKeyListener(new KeyAdapter() {
-            @Override
-            public void keyPressed(KeyEvent e) {
-                if (e.getKeyCode() == KeyEvent.VK_V && e.isControlDown()) {
-                    SwingUtilities.invokeLater(() -> {
-                        LOGGER.warning("inside ctrl V");
-                        try {
-                            Clipboard clipboard = Toolkit.getDefaultToolkit().getSystemClipboard();
-                            String pastedText = (String) clipboard.getData(DataFlavor.stringFlavor);
-
-                            String editorPath = getCurrentEditorRelativePath();
-                            if (editorPath != null && !pastedText.isEmpty()) {
-                                String tagged = "#" + editorPath + "\n" + pastedText + "\n";
-                                inputField.insert(tagged, inputField.getCaretPosition());
-
-                                // ✅ Add visible message to chat
-                                addUserMessage("📋 Pasted from `" + editorPath + "`:\n\n" + pastedText);
-                            }
-                        } catch (Exception ignored) {}
-                    });
-                }
+            public void insertUpdate(DocumentEvent e) {
+                detectPastedStackTrace(e);
+                inputTimer.restart();
             }
+            public void removeUpdate(DocumentEvent e) { inputTimer.restart(); }
+            public void changedUpdate(DocumentEvent e) { }
         });
+
         JScrollPane inputScrollPane = new JBScrollPane(inputField);
         inputScrollPane.setBorder(JBUI.Borders.empty());
         inputPanel.add(inputScrollPane, BorderLayout.CENTER);
@@ -165,6 +143,26 @@ new PastePathAppender(inputField, project);
                 copySelectedFilesToClipboard();
             }
         });
+        actionGroup.add(new AnAction("Copy Next Part", "Copy the next part of a multi-part copy", AllIcons.Actions.Forward) {
+            public void actionPerformed(@NotNull AnActionEvent e) {
+                copyNextPart();
+            }
+        });
+        actionGroup.add(new AnAction("Export Bundle to File", "Write selected files and input to a file", AllIcons.ToolbarDecorator.Export) {
+            public void actionPerformed(@NotNull AnActionEvent e) {
+                exportBundleToFile();
+            }
+        });
+        actionGroup.add(new AnAction("Save Selection Set", "Save the selected items under a name", AllIcons.Actions.MenuSaveall) {
+            public void actionPerformed(@NotNull AnActionEvent e) {
+                saveSelectionSet();
+            }
+        });
+        actionGroup.add(new AnAction("Load Selection Set", "Replace the selection with a saved set", AllIcons.Actions.MenuOpen) {
+            public void actionPerformed(@NotNull AnActionEvent e) {
+                loadSelectionSet();
+            }
+        });
         actionGroup.add(new AnAction("Clear Selection", "Clear selected files", AllIcons.Actions.GC) {
             public void actionPerformed(@NotNull AnActionEvent e) {
                 clearSelection();
@@ -177,9 +175,11 @@ new PastePathAppender(inputField, project);
         add(inputPanel, BorderLayout.SOUTH);
 
         // Create suggestions dropdown (initially hidden)
-        suggestionModel = new DefaultListModel<>();
+        suggestionModel = new LazySuggestionModel();
         suggestionList = new JBList<>(suggestionModel);
-        suggestionList.setCellRenderer(new FileSuggestionRenderer());
+        suggestionList.setCellRenderer(new FileSuggestionRenderer(sizeIndex));
+        // All rows have one height, so layout does not have to measure every row
+        suggestionList.setFixedCellHeight(JBUI.scale(22));
         suggestionList.addKeyListener(new KeyAdapter() {
             @Override
             public void keyPressed(KeyEvent e) {
@@ -197,6 +197,8 @@ new PastePathAppender(inputField, project);
         });
 
         suggestionList.addListSelectionListener(e -> {
+            // Moving the selection down with the keyboard pulls in further pages
+            suggestionModel.loadMoreNear(suggestionList.getSelectedIndex());
             if (!e.getValueIsAdjusting() && suggestionList.getSelectedValue() != null) {
                 if (!navigatingSuggestions) {
                     selectSuggestion(suggestionList.getSelectedValue());
@@ -247,6 +249,7 @@ new PastePathAppender(inputField, project);
                     copySelectedFilesToClipboard();
                 } else if ((e.getKeyCode() == KeyEvent.VK_DOWN || e.getKeyCode() == KeyEvent.VK_UP) && suggestionPanel.isVisible()) {
                     e.consume();
+                    navigatingSuggestions = true;
                     suggestionList.requestFocusInWindow();
                     int size = suggestionList.getModel().getSize();
                     if (size > 0) {
@@ -266,70 +269,103 @@ new PastePathAppender(inputField, project);
         });
 
         suggestionPanel = new JPanel(new BorderLayout());
-        suggestionPanel.add(new JBScrollPane(suggestionList), BorderLayout.CENTER);
+        JBScrollPane suggestionScrollPane = new JBScrollPane(suggestionList);
+        // Scrolling close to the end pulls in further pages
+        suggestionScrollPane.getVerticalScrollBar().addAdjustmentListener(
+                e -> suggestionModel.loadMoreNear(suggestionList.getLastVisibleIndex()));
+        suggestionPanel.add(suggestionScrollPane, BorderLayout.CENTER);
+        suggestionNotice = new JLabel();
+        suggestionNotice.setForeground(JBColor.GRAY);
+        suggestionNotice.setBorder(JBUI.Borders.empty(2, 5));
+        suggestionNotice.setVisible(false);
+        suggestionPanel.add(suggestionNotice, BorderLayout.SOUTH);
         suggestionPanel.setBorder(BorderFactory.createLineBorder(JBColor.border()));
         suggestionPanel.setVisible(false);
 
         add(suggestionPanel, BorderLayout.NORTH);
-        VirtualFile baseDir = project.getBaseDir();
-        if (baseDir != null) {
-            File gitignore = new File(baseDir.getPath(), ".gitignore");
-            if (gitignore.exists()) {
-                try {
-                    gitIgnoreParser = new GitIgnoreParser(gitignore);
-                } catch (IOException e) {
-                    addSystemMessage("⚠️ Failed to parse .gitignore: " + e.getMessage());
+        PathCatalog.getInstance(project).ensureStarted();
+        ContentSearchIndex.getInstance(project).ensureStarted();
+    }
+
+    /**
+     * Takes a pasted stack trace out of the input and captures it with its source windows
+     */
+    private void detectPastedStackTrace(DocumentEvent e) {
+        if (e.getLength() < 50) return;
+
+        String inserted;
+        try {
+            inserted = e.getDocument().getText(e.getOffset(), e.getLength());
+        } catch (BadLocationException ex) {
+            return;
+        }
+        if (!StackTraceCapture.containsFrames(inserted)) return;
+
+        // The document cannot be modified from its own listener
+        int offset = e.getOffset();
+        SwingUtilities.invokeLater(() -> {
+            try {
+                if (inserted.equals(inputField.getText(offset, inserted.length()))) {
+                    inputField.replaceRange("", offset, offset + inserted.length());
                 }
+            } catch (BadLocationException ignored) {
             }
-        }
+            captureStackTrace(inserted);
+        });
     }
 
-    private String getCurrentEditorRelativePath() {
-        FileEditorManager manager = FileEditorManager.getInstance(project);
-        VirtualFile[] files = manager.getSelectedFiles();
-        if (files.length > 0) {
-            VirtualFile file = files[0];
-            LOGGER.warning("Editor file path: " + file.getPath());
-            VirtualFile base = project.getBaseDir();
-            if (file.getPath().startsWith(base.getPath())) {
-                String relative = file.getPath().substring(base.getPath().length() + 1);
-                LOGGER.warning("Resolved relative path: " + relative);
-                return relative;
-            }
-        }
-        LOGGER.warning("No file found or unable to resolve relative path.");
-        return null;
+    /**
+     * Resolves the frames of the trace in the background and selects the trace
+     * together with a window of source lines around every frame
+     */
+    public void captureStackTrace(String trace) {
+        int contextLines = FileCopierSettings.getInstance().getState().stackTraceContextLines;
+        String firstLine = trace.trim().split("\n", 2)[0].trim();
+        String label = "Stack trace: " + (firstLine.length() > 80 ? firstLine.substring(0, 80) + "…" : firstLine);
+
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            String snippet = StackTraceCapture.capture(project, trace, contextLines);
+            SwingUtilities.invokeLater(() -> addSnippet(label, snippet, "🧵"));
+        });
     }
 
+    /**
+     * Selects an already formatted snippet, such as a captured editor selection
+     */
+    public void addSnippet(String label, String content, String icon) {
+        if (selection.add(new FileItem(label, FileItem.Kind.SNIPPET, content))) {
+            addUserMessage("Selected " + icon + " " + label);
+            updateSelectionStats();
+        }
+    }
 
     /**
      * Handles input changes to detect # for file search
      */
     private void handleInputChange() {
-        String text = inputField.getText();
-        int caretPosition = inputField.getCaretPosition();
-
-        // Guard against caret being outside of text bounds
-        if (caretPosition > text.length() || text.isEmpty()) {
+        // Only the current line up to the caret can hold the query
+        String linePrefix;
+        try {
+            int caretPosition = inputField.getCaretPosition();
+            int lineStart = inputField.getLineStartOffset(inputField.getLineOfOffset(caretPosition));
+            linePrefix = inputField.getText(lineStart, caretPosition - lineStart);
+        } catch (BadLocationException e) {
             hideSuggestions();
             return;
         }
 
         // Find the # that precedes the current caret position
-        int hashIndex = -1;
-        for (int i = caretPosition - 1; i >= 0; i--) {
-            if (i >= text.length()) continue;
-            if (text.charAt(i) == '#') {
-                hashIndex = i;
-                break;
-            } else if (text.charAt(i) == '\n') {
-                break;
-            }
-        }
-
+        int hashIndex = linePrefix.lastIndexOf('#');
         if (hashIndex >= 0) {
-            String query = text.substring(hashIndex + 1, caretPosition).trim().toLowerCase();
-            if (!query.isEmpty()) {
+            // Case is kept for globs and regular expressions; plain queries ignore it
+            String query = linePrefix.substring(hashIndex + 1).trim();
+            if (query.startsWith("?")) {
+                showContentSuggestions(unquote(query.substring(1).trim().toLowerCase()));
+            } else if (query.equalsIgnoreCase("changed")) {
+                showGitSuggestions(GitChanges.Scope.CHANGED);
+            } else if (query.equalsIgnoreCase("staged")) {
+                showGitSuggestions(GitChanges.Scope.STAGED);
+            } else if (!query.isEmpty()) {
                 showFileSuggestions(query);
             } else {
                 hideSuggestions();
@@ -343,103 +379,160 @@ new PastePathAppender(inputField, project);
      * Shows file and folder suggestions matching the query
      */
     private void showFileSuggestions(String query) {
-        suggestionModel.clear();
+        int generation = ++searchGeneration;
 
         // Search for files and folders in the project
         ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            // Ranked folders first, then files, then alphabetically; further pages load on scroll
+            PathCatalog catalog = PathCatalog.getInstance(project);
+            List<FileSuggestion> found = catalog.search(query, LazySuggestionModel.PAGE_SIZE);
+            LazySuggestionModel.PageSource morePages = new LazySuggestionModel.PageSource() {
+                private SuggestionRanker.RankedCursor cursor;
+
+                @Override
+                public List<FileSuggestion> nextPage(int pageSize) {
+                    if (cursor == null) {
+                        // The first page came from the query cache
+                        cursor = catalog.openCursor(query);
+                        cursor.next(found.size());
+                    }
+                    return cursor.next(pageSize);
+                }
+            };
+
             List<FileSuggestion> suggestions = new ArrayList<>();
-            VirtualFile baseDir = project.getBaseDir();
+            if (!found.isEmpty()) {
+                suggestions.addAll(filteredFolderSuggestions(PathQuery.compile(query)));
+            }
+            suggestions.addAll(found);
+
+            // Update UI on EDT
+            SwingUtilities.invokeLater(() -> showSuggestions(generation, suggestions, morePages, null));
+        });
+    }
+
+    /**
+     * For glob, regex and extension queries, one entry per content root that
+     * selects all matches below it, starting at the literal prefix of the query
+     */
+    private List<FileSuggestion> filteredFolderSuggestions(PathQuery query) {
+        List<FileSuggestion> suggestions = new ArrayList<>();
+        if (query.isPlain()) return suggestions;
+
+        ContentRoots roots = ContentRoots.collect(project);
+        for (ContentRoots.Root root : roots.getRoots()) {
+            String prefix = query.getPrefix();
+            String path = prefix == null ? root.name : root.name + "/" + prefix.substring(0, prefix.length() - 1);
+            VirtualFile dir = roots.resolve(path);
+            if (dir != null && dir.isDirectory()) {
+                suggestions.add(new FileSuggestion(path, FileItem.Kind.DIRECTORY, query.getText()));
+            }
+        }
+        return suggestions;
+    }
 
-            if (baseDir == null) return;
+    /**
+     * Replaces the suggestions with the results of a search, unless a newer search was started;
+     * the notice, if any, is shown below them
+     */
+    private void showSuggestions(int generation, List<FileSuggestion> suggestions,
+                                 LazySuggestionModel.PageSource morePages, String notice) {
+        if (generation != searchGeneration) return;
 
-            findMatchingFilesAndFolders(baseDir, query, suggestions);
+        suggestionNotice.setText(notice);
+        suggestionNotice.setVisible(notice != null);
+        if (suggestions.isEmpty() && notice == null) {
+            hideSuggestions();
+            return;
+        }
+        suggestionModel.reset(suggestions, morePages);
+        showSuggestionPanel();
+    }
 
-            if (!suggestions.isEmpty()) {
-                // Sort: folders first, then files, then alphabetically
-                suggestions.sort((a, b) -> {
-                    if (a.isDirectory != b.isDirectory) {
-                        return a.isDirectory ? -1 : 1;
-                    }
-                    return a.path.compareToIgnoreCase(b.path);
-                });
-
-                // Limit to 30 suggestions
-                List<FileSuggestion> limitedSuggestions = suggestions.stream()
-                        .limit(30)
-                        .collect(Collectors.toList());
-
-                // Update UI on EDT
-                SwingUtilities.invokeLater(() -> {
-                    for (FileSuggestion suggestion : limitedSuggestions) {
-                        suggestionModel.addElement(suggestion);
-                    }
+    /**
+     * Shows files whose content contains the text, as typed in #?"text"
+     */
+    private void showContentSuggestions(String text) {
+        if (text.length() < 3) {
+            hideSuggestions();
+            return;
+        }
+        int generation = ++searchGeneration;
 
-                    showSuggestionPanel();
-                });
-            } else {
-                SwingUtilities.invokeLater(this::hideSuggestions);
+        ContentSearchIndex index = ContentSearchIndex.getInstance(project);
+        index.ensureStarted();
+
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            // Checked before searching, as the search may still run against a partly built index
+            boolean partial = !index.isReady();
+            ContentRoots roots = ContentRoots.collect(project);
+            List<FileSuggestion> suggestions = new ArrayList<>();
+            for (VirtualFile file : index.search(text, 30)) {
+                String relativePath = roots.getRelativePath(file);
+                if (relativePath != null) {
+                    suggestions.add(new FileSuggestion(relativePath, false));
+                }
             }
+
+            String notice = partial ? "⏳ Still indexing file contents; results may be incomplete" : null;
+            SwingUtilities.invokeLater(() -> showSuggestions(generation, suggestions, null, notice));
         });
     }
 
     /**
-     * Recursively finds files and folders matching the query
+     * Shows the #changed or #staged pseudo-query: one entry selecting the whole
+     * change set, followed by its individual files: those that differ from HEAD,
+     * or for #staged those whose index entry differs from HEAD
      */
-    private void findMatchingFilesAndFolders(VirtualFile dir, String query, List<FileSuggestion> suggestions) {
-        if (!dir.isValid()) return;
+    private void showGitSuggestions(GitChanges.Scope scope) {
+        int generation = ++searchGeneration;
 
-        for (VirtualFile child : dir.getChildren()) {
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            List<GitChanges.Change> changes;
             try {
-                String relativePath = getRelativePath(project.getBaseDir(), child);
-
-                // 🔥 Skip ignored files
-                if (gitIgnoreParser != null && gitIgnoreParser.isIgnored(relativePath, child.isDirectory())) {
-                    continue;
-                }
+                changes = GitChanges.getInstance(project).getChanges(scope);
+            } catch (IOException e) {
+                LOGGER.warning("Failed to read git changes: " + e.getMessage());
+                changes = new ArrayList<>();
+            }
 
-                if (child.getName().toLowerCase().contains(query) ||
-                        relativePath.toLowerCase().contains(query)) {
-                    suggestions.add(new FileSuggestion(relativePath, child.isDirectory()));
+            List<FileSuggestion> suggestions = new ArrayList<>();
+            if (!changes.isEmpty()) {
+                suggestions.add(scope == GitChanges.Scope.CHANGED
+                        ? new FileSuggestion("#changed", FileItem.Kind.GIT_CHANGED)
+                        : new FileSuggestion("#staged", FileItem.Kind.GIT_STAGED));
+            }
+            for (GitChanges.Change change : changes) {
+                if (!change.deleted) {
+                    suggestions.add(new FileSuggestion(change.relativePath, false));
                 }
+            }
 
-                if (child.isDirectory()) {
-                    findMatchingFilesAndFolders(child, query, suggestions);
-                }
-            } catch (Exception ignored) {}
-        }
+            SwingUtilities.invokeLater(() -> showSuggestions(generation, suggestions, null, null));
+        });
     }
 
     /**
-     * Gets the path relative to the project base directory
+     * Strips one pair of surrounding double quotes, if present
      */
-    private String getRelativePath(VirtualFile baseDir, VirtualFile file) {
-        String basePath = baseDir.getPath();
-        String filePath = file.getPath();
-
-        if (filePath.startsWith(basePath)) {
-            return filePath.substring(basePath.length() + 1); // +1 to remove the leading slash
+    private static String unquote(String text) {
+        if (text.length() >= 2 && text.startsWith("\"") && text.endsWith("\"")) {
+            return text.substring(1, text.length() - 1);
         }
-
-        return filePath;
+        if (text.startsWith("\"")) {
+            return text.substring(1);
+        }
+        return text;
     }
 
     /**
      * Shows the suggestion panel
      */
     private void showSuggestionPanel() {
-        if (!suggestionPanel.isVisible() && suggestionModel.getSize() > 0) {
+        if (!suggestionPanel.isVisible() && (suggestionModel.getSize() > 0 || suggestionNotice.isVisible())) {
+            // The panel sits in the NORTH slot of this panel's BorderLayout, which sizes
+            // and positions it; no screen coordinates need to be queried
             suggestionPanel.setVisible(true);
-
-            // Position the suggestion panel below the input field
-            Point inputPosition = inputField.getLocationOnScreen();
-            Point panelPosition = getLocationOnScreen();
-
-            int x = inputPosition.x - panelPosition.x;
-            int y = inputPosition.y - panelPosition.y - suggestionPanel.getPreferredSize().height;
-
-            suggestionPanel.setLocation(x, y);
-            suggestionPanel.setSize(inputField.getWidth(), 200);
-
             suggestionPanel.revalidate();
             suggestionPanel.repaint();
         }
@@ -449,6 +542,7 @@ new PastePathAppender(inputField, project);
      * Hides the suggestion panel
      */
     private void hideSuggestions() {
+        searchGeneration++;
         suggestionPanel.setVisible(false);
     }
 
@@ -457,13 +551,16 @@ new PastePathAppender(inputField, project);
      */
     private void selectSuggestion(FileSuggestion suggestion) {
         // Add to selected items
-        FileItem item = new FileItem(suggestion.path, suggestion.isDirectory);
-        if (!selectedItems.contains(item)) {
-            selectedItems.add(item);
+        FileItem item = new FileItem(suggestion.path, suggestion.kind, null, suggestion.filter);
+        if (selection.add(item)) {
+            BundlePrewarmer.getInstance(project).prewarm(item);
 
             // Add message to chat showing the selected item
-            String icon = suggestion.isDirectory ? "📁" : "📄";
-            addUserMessage("Selected " + icon + " " + suggestion.path);
+            String icon = suggestion.isDirectory ? "📁" : suggestion.kind == FileItem.Kind.FILE ? "📄" : "🔀";
+            addUserMessage("Selected " + icon + " " + suggestion.path
+                    + (suggestion.filter != null ? " (files matching " + suggestion.filter + ")" : ""));
+            warnIfLargeFolder(item);
+            updateSelectionStats();
 
             // Clear the input field
             inputField.setText("");
@@ -477,119 +574,393 @@ new PastePathAppender(inputField, project);
      * Copies all selected files to clipboard
      */
     public void copySelectedFilesToClipboard() {
+        // One consistent selection for the whole task, however it is edited meanwhile
+        SelectionStore.Snapshot snapshot = selection.getSnapshot();
+        String inputText = inputField.getText().trim();
+        if (FileCopierSettings.getInstance().getState().splitIntoParts) {
+            copyInParts(snapshot, inputText);
+            return;
+        }
+
         ProgressManager.getInstance().run(new Task.Backgroundable(project, "Copying Files to Clipboard") {
-            private String clipboardContent = "";
-            private int fileCount = 0;
+            private BundleSink sink;
+            private FileBundler bundler;
 
             @Override
             public void run(@NotNull ProgressIndicator indicator) {
-                StringBuilder contentBuilder = new StringBuilder();
+                sink = new BundleSink(FileCopierSettings.getInstance().getMemoryBudgetChars());
+                bundler = new FileBundler(project, indicator);
+
+                try (BundleSink out = sink) {
+                    // ✅ Always include input text, even if no files selected
+                    if (!inputText.isEmpty()) {
+                        out.append("### Chat Input ###\n" + inputText + "\n\n");
+                        out.endSection();
+                    }
 
-                // ✅ Always include input text, even if no files selected
-                String inputText = inputField.getText().trim();
-                if (!inputText.isEmpty()) {
-                    contentBuilder.append("### Chat Input ###\n").append(inputText).append("\n\n");
+                    bundler.collect(snapshot.getItems());
+                    bundler.write(out);
+                } catch (IOException e) {
+                    throw new RuntimeException("Failed to write bundle: " + e.getMessage(), e);
                 }
+            }
 
-                for (FileItem item : selectedItems) {
-                    if (indicator.isCanceled()) return;
+            @Override
+            public void onSuccess() {
+                // Copy to clipboard; a spilled bundle is only read back when pasted
+                Transferable contents = sink.toTransferable();
+                getClipboard().setContents(contents, contents instanceof ClipboardOwner ? (ClipboardOwner) contents : null);
+
+                String size = String.format("%.1f MB", bundler.getTotalBytes() / (1024.0 * 1024.0));
+                addSystemMessage("✅ Copied " + bundler.getFileCount() + " files (" + size + ") to clipboard!"
+                        + (bundler.getDuplicateCount() > 0 ? " " + bundler.getDuplicateCount() + " identical files were referenced instead of repeated." : "")
+                        + (sink.isSpilled() ? " The bundle exceeded the memory limit and is backed by a temp file." : "")
+                        + (selection.getSnapshot().getVersion() != snapshot.getVersion()
+                        ? " The selection changed while copying; copy again to include the changes." : ""));
+            }
 
-                    if (item.isDirectory()) {
-                        processDirectory(item.getPath(), contentBuilder, indicator);
-                    } else {
-                        processFile(item.getPath(), contentBuilder, indicator);
-                    }
-                }
+            @Override
+            public void onCancel() {
+                if (sink != null) sink.discard();
+                addSystemMessage("❌ Operation canceled");
+            }
 
-                clipboardContent = contentBuilder.toString();
+            @Override
+            public void onThrowable(@NotNull Throwable error) {
+                if (sink != null) sink.discard();
+                addSystemMessage("❌ Copy failed: " + error.getMessage());
             }
+        });
+    }
 
-            private void processDirectory(String dirPath, StringBuilder contentBuilder, ProgressIndicator indicator) {
-                VirtualFile dir = project.getBaseDir().findFileByRelativePath(dirPath);
-                if (dir == null || !dir.isValid() || !dir.isDirectory()) return;
+    /**
+     * Splits the bundle into parts under the configured limit in one pass and
+     * copies the first part; {@link #copyNextPart} hands out the others
+     */
+    private void copyInParts(SelectionStore.Snapshot snapshot, String inputText) {
+        FileCopierSettings.SettingsState settings = FileCopierSettings.getInstance().getState();
+        ProgressManager.getInstance().run(new Task.Backgroundable(project, "Copying Files in Parts") {
+            private MultiPartOutput parts;
+            private FileBundler bundler;
 
-                // 💡 Add this to include folder heading
-                contentBuilder.append("### Folder: ").append(dirPath).append(" ###\n\n");
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                parts = new MultiPartOutput(settings.partLimit, settings.partLimitInTokens,
+                        FileCopierSettings.getInstance().getMemoryBudgetChars());
+                bundler = new FileBundler(project, indicator);
+
+                try (MultiPartOutput out = parts) {
+                    if (!inputText.isEmpty()) {
+                        out.append("### Chat Input ###\n" + inputText + "\n\n");
+                        out.endSection();
+                    }
 
-                for (VirtualFile child : dir.getChildren()) {
-                    if (indicator.isCanceled()) return;
+                    bundler.collect(snapshot.getItems());
+                    bundler.write(out);
+                } catch (IOException e) {
+                    throw new RuntimeException("Failed to write bundle: " + e.getMessage(), e);
+                }
+            }
 
-                    String relative = getRelativePath(project.getBaseDir(), child);
-                    if (child.isDirectory()) {
-                        processDirectory(relative, contentBuilder, indicator);
-                    } else {
-                        processFile(relative, contentBuilder, indicator);
-                    }
+            @Override
+            public void onSuccess() {
+                if (bundleParts != null) bundleParts.discard();
+                bundleParts = parts;
+                nextPartIndex = 0;
+                if (parts.getPartCount() == 0) {
+                    addSystemMessage("Nothing to copy");
+                    return;
                 }
+                addSystemMessage("✅ Split " + bundler.getFileCount() + " files into " + parts.getPartCount() + " parts."
+                        + (parts.isSpilled() ? " Parts beyond the memory limit are kept in a temp file." : ""));
+                copyNextPart();
+            }
+
+            @Override
+            public void onCancel() {
+                if (parts != null) parts.discard();
+                addSystemMessage("❌ Operation canceled");
+            }
+
+            @Override
+            public void onThrowable(@NotNull Throwable error) {
+                if (parts != null) parts.discard();
+                addSystemMessage("❌ Copy failed: " + error.getMessage());
             }
+        });
+    }
 
-            private void processFile(String filePath, StringBuilder contentBuilder, ProgressIndicator indicator) {
-                indicator.setText("Processing " + filePath);
+    /**
+     * Copies the next part of the last multi-part copy, without regenerating the bundle
+     */
+    public void copyNextPart() {
+        if (bundleParts == null || nextPartIndex >= bundleParts.getPartCount()) {
+            addSystemMessage(bundleParts == null ? "No multi-part copy to continue. Enable splitting in Settings | Tools | File Copier."
+                    : "All " + bundleParts.getPartCount() + " parts have been copied");
+            return;
+        }
 
-                VirtualFile file = project.getBaseDir().findFileByRelativePath(filePath);
-                if (file == null || !file.isValid() || file.isDirectory()) return;
+        String part;
+        try {
+            part = bundleParts.getPart(nextPartIndex);
+        } catch (IOException e) {
+            addSystemMessage("❌ Failed to read part " + (nextPartIndex + 1) + ": " + e.getMessage());
+            return;
+        }
+        getClipboard().setContents(new StringSelection(part), null);
+        nextPartIndex++;
+        addSystemMessage("📋 Copied part " + nextPartIndex + " of " + bundleParts.getPartCount() + " to clipboard"
+                + (nextPartIndex < bundleParts.getPartCount() ? "; use Copy Next Part for the next one." : "."));
+    }
 
-                try {
-                    contentBuilder.append("### File: ").append(filePath).append(" ###\n");
+    /**
+     * Exports all selected files to a bundle file chosen by the user
+     */
+    public void exportBundleToFile() {
+        SelectionStore.Snapshot snapshot = selection.getSnapshot();
+        FileSaverDescriptor descriptor = new FileSaverDescriptor("Export Bundle",
+                "Write the selected files to a bundle file; use .gz to compress it", "txt", "gz");
+        VirtualFileWrapper wrapper = FileChooserFactory.getInstance()
+                .createSaveFileDialog(descriptor, project)
+                .save((VirtualFile) null, "bundle.txt");
+        if (wrapper == null) return;
+
+        File target = wrapper.getFile();
+        String inputText = inputField.getText().trim();
+        ProgressManager.getInstance().run(new Task.Backgroundable(project, "Exporting Bundle") {
+            private FileBundler bundler;
 
-                    if (file.getFileType().isBinary()) {
-                        contentBuilder.append("(binary file, content not copied)\n\n");
-                        return;
-                    }
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                bundler = new FileBundler(project, indicator);
 
-                    try (BufferedReader reader = new BufferedReader(
-                            new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
-                        String line;
-                        while ((line = reader.readLine()) != null) {
-                            if (indicator.isCanceled()) return;
-                            contentBuilder.append(line).append("\n");
-                        }
+                try (FileExportOutput out = new FileExportOutput(target.toPath())) {
+                    if (!inputText.isEmpty()) {
+                        out.append("### Chat Input ###\n" + inputText + "\n\n");
+                        out.endSection();
                     }
 
-                    contentBuilder.append("\n\n");
-                    fileCount++;
-
+                    bundler.collect(snapshot.getItems());
+                    bundler.write(out);
                 } catch (IOException e) {
-                    contentBuilder.append("### Error reading ").append(filePath)
-                            .append(": ").append(e.getMessage()).append(" ###\n\n");
+                    throw new RuntimeException("Failed to export bundle: " + e.getMessage(), e);
                 }
             }
 
-
             @Override
             public void onSuccess() {
-                // Copy to clipboard
-                StringSelection selection = new StringSelection(clipboardContent);
-                Clipboard clipboard = Toolkit.getDefaultToolkit().getSystemClipboard();
-                clipboard.setContents(selection, null);
-                addSystemMessage("✅ Copied " + fileCount + " files to clipboard!");
+                addSystemMessage("✅ Exported " + bundler.getFileCount() + " files to " + target.getPath());
             }
 
             @Override
             public void onCancel() {
-                addSystemMessage("❌ Operation canceled");
+                addSystemMessage("❌ Export canceled");
+            }
+
+            @Override
+            public void onThrowable(@NotNull Throwable error) {
+                addSystemMessage("❌ Export failed: " + error.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Saves the selection under a name chosen by the user, together with the
+     * manifest of the files its folders expand to
+     */
+    public void saveSelectionSet() {
+        SelectionStore.Snapshot snapshot = selection.getSnapshot();
+        if (snapshot.isEmpty()) {
+            addSystemMessage("Nothing selected to save");
+            return;
+        }
+        String name = Messages.showInputDialog(project, "Name of the selection set:", "Save Selection Set", null);
+        if (name == null || name.trim().isEmpty()) return;
+
+        ProgressManager.getInstance().run(new Task.Backgroundable(project, "Saving Selection Set") {
+            private List<SelectionSets.ManifestEntry> manifest;
+
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                FileBundler bundler = new FileBundler(project, indicator);
+                bundler.collect(snapshot.getItems());
+                manifest = bundler.getManifest(snapshot.getItems());
+            }
+
+            @Override
+            public void onSuccess() {
+                SelectionSets.getInstance(project).save(name.trim(), snapshot.getItems(), manifest);
+                addSystemMessage("💾 Saved selection set '" + name.trim() + "' with " + snapshot.getItems().size()
+                        + " items (" + manifest.size() + " files and folders)");
             }
         });
     }
 
+    /**
+     * Replaces the selection with a saved set chosen by the user
+     */
+    public void loadSelectionSet() {
+        SelectionSets sets = SelectionSets.getInstance(project);
+        List<String> names = sets.getNames();
+        if (names.isEmpty()) {
+            addSystemMessage("No saved selection sets yet");
+            return;
+        }
+        int index = Messages.showChooseDialog(project, "Selection set to load:", "Load Selection Set", null,
+                names.toArray(new String[0]), names.get(names.size() - 1));
+        if (index < 0) return;
+
+        String name = names.get(index);
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            // Validates the manifest with a stamp check per entry
+            List<FileItem> items = sets.load(name);
+            if (items == null) return;
+
+            SwingUtilities.invokeLater(() -> {
+                selection.replace(items);
+                BundlePrewarmer prewarmer = BundlePrewarmer.getInstance(project);
+                prewarmer.clear();
+                items.forEach(prewarmer::prewarm);
+                addSystemMessage("📂 Loaded selection set '" + name + "' with " + items.size() + " items");
+                items.forEach(this::warnIfLargeFolder);
+                updateSelectionStats();
+            });
+        });
+    }
+
     /**
      * Clears the selected files list
      */
     public void clearSelection() {
-        selectedItems.clear();
+        selection.clear();
+        BundlePrewarmer.getInstance(project).clear();
         addSystemMessage("Cleared all selected files and folders");
+        updateSelectionStats();
     }
 
     /**
-     * Updates the selected items from the service
+     * Reports a selection change made through the service; the items are
+     * already in the shared {@link SelectionStore}
      */
     public void updateSelectedItems(List<FileItem> items) {
-        this.selectedItems.clear();
-        this.selectedItems.addAll(items);
-
-        // Optionally, refresh the UI to show the current selections
-        // For example, you could add a visual indicator in the chat
         addSystemMessage("Selection updated: " + items.size() + " items selected");
+        updateSelectionStats();
+    }
+
+    /**
+     * Flags a selected folder whose indexed size exceeds the configured threshold
+     */
+    private void warnIfLargeFolder(FileItem item) {
+        if (item.getKind() != FileItem.Kind.DIRECTORY || item.getFilter() != null) return;
+
+        DirectorySizeIndex.Totals totals = DirectorySizeIndex.getInstance(project).getTotals(item.getPath(), true);
+        if (totals.bytes > FileCopierSettings.getInstance().getLargeFolderWarningBytes()) {
+            addSystemMessage("⚠️ " + item.getPath() + " is large: " + totals.describe()
+                    + ". Consider a # filter or copying in parts.");
+        }
+    }
+
+    /**
+     * Shows file count, size, estimated tokens and the largest items of the
+     * selection. The items are looked up on a pooled thread, so a large
+     * selection does not hold the EDT; only the latest lookup is shown.
+     */
+    private void updateSelectionStats() {
+        List<FileItem> items = selection.getSnapshot().getItems();
+        int generation = ++statsGeneration;
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            String text = ReadAction.compute(() -> describeSelection(items));
+            SwingUtilities.invokeLater(() -> {
+                if (generation == statsGeneration) statsLabel.setText(text);
+            });
+        });
+    }
+
+    /**
+     * Files and folders are looked up in the folder size index; filtered folders
+     * and git changes are only known once they are copied
+     */
+    private String describeSelection(List<FileItem> items) {
+        DirectorySizeIndex sizeIndex = DirectorySizeIndex.getInstance(project);
+        if (items.isEmpty()) {
+            return "Nothing selected";
+        }
+        if (!sizeIndex.isReady()) {
+            return "Measuring selection...";
+        }
+
+        DirectorySizeIndex.Totals total = DirectorySizeIndex.Totals.EMPTY;
+        Map<String, Long> bytesByPath = new HashMap<>();
+        int unsized = 0;
+        for (FileItem item : items) {
+            boolean sizable = item.getKind() == FileItem.Kind.FILE || item.getKind() == FileItem.Kind.DIRECTORY;
+            if (sizable && item.getFilter() == null) {
+                DirectorySizeIndex.Totals totals = sizeIndex.getTotals(item.getPath(), item.isDirectory());
+                total = total.plus(totals);
+                bytesByPath.put(item.getPath(), totals.bytes);
+            } else if (item.getKind() == FileItem.Kind.SNIPPET) {
+                total = total.plus(new DirectorySizeIndex.Totals(0, item.getContent().length()));
+            } else {
+                unsized++;
+            }
+        }
+
+        StringBuilder text = new StringBuilder("<html>");
+        if (total.bytes > FileCopierSettings.getInstance().getLargeFolderWarningBytes()) {
+            text.append("⚠️ ");
+        }
+        text.append("Selection: ").append(total.describe());
+        if (unsized > 0) {
+            text.append(" + ").append(unsized).append(unsized == 1 ? " item" : " items").append(" sized on copy");
+        }
+
+        List<Map.Entry<String, Long>> largest = new ArrayList<>(bytesByPath.entrySet());
+        largest.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        if (largest.size() > 1) {
+            text.append("<br>Largest: ");
+            for (int i = 0; i < Math.min(3, largest.size()); i++) {
+                if (i > 0) text.append(", ");
+                text.append(StringUtil.escapeXmlEntities(largest.get(i).getKey()))
+                        .append(String.format(" (%.1f MB)", largest.get(i).getValue() / (1024.0 * 1024.0)));
+            }
+        }
+        return text.append("</html>").toString();
+    }
+
+    @Override
+    public void dispose() {
+        inputTimer.stop();
+        if (bundleParts != null) {
+            bundleParts.discard();
+            bundleParts = null;
+        }
+    }
+
+    private Clipboard getClipboard() {
+        if (clipboard == null) {
+            clipboard = Toolkit.getDefaultToolkit().getSystemClipboard();
+        }
+        return clipboard;
+    }
+
+    @TestOnly
+    void setClipboard(Clipboard clipboard) {
+        this.clipboard = clipboard;
+    }
+
+    @TestOnly
+    JBTextArea getInputField() {
+        return inputField;
+    }
+
+    @TestOnly
+    JBList<FileSuggestion> getSuggestionList() {
+        return suggestionList;
+    }
+
+    @TestOnly
+    boolean isShowingSuggestions() {
+        return suggestionPanel.isVisible();
     }
 
     /**
@@ -667,27 +1038,25 @@ new PastePathAppender(inputField, project);
     }
 
     /**
-     * Model class for file suggestions
+     * Custom renderer for file suggestions
      */
-    private static class FileSuggestion {
-        final String path;
-        final boolean isDirectory;
+    private static class FileSuggestionRenderer extends DefaultListCellRenderer {
+        private final DirectorySizeIndex sizeIndex;
+        // File type icons by extension; looked up once, rendering happens on every scroll
+        private final Map<String, Icon> iconsByExtension = new HashMap<>();
 
-        FileSuggestion(String path, boolean isDirectory) {
-            this.path = path;
-            this.isDirectory = isDirectory;
+        FileSuggestionRenderer(DirectorySizeIndex sizeIndex) {
+            this.sizeIndex = sizeIndex;
         }
 
-        @Override
-        public String toString() {
-            return path;
+        private Icon getFileIcon(String path) {
+            String name = path.substring(path.lastIndexOf('/') + 1);
+            int dot = name.lastIndexOf('.');
+            String extension = dot < 0 ? name : name.substring(dot + 1).toLowerCase();
+            return iconsByExtension.computeIfAbsent(extension,
+                    key -> FileTypeManager.getInstance().getFileTypeByFileName(name).getIcon());
         }
-    }
 
-    /**
-     * Custom renderer for file suggestions
-     */
-    private static class FileSuggestionRenderer extends DefaultListCellRenderer {
         @Override
         public Component getListCellRendererComponent(JList<?> list, Object value, int index,
                                                       boolean isSelected, boolean cellHasFocus) {
@@ -698,9 +1067,23 @@ new PastePathAppender(inputField, project);
 
                 if (suggestion.isDirectory) {
                     label.setIcon(AllIcons.Nodes.Folder);
-                    label.setText(suggestion.path);
+                    if (suggestion.filter != null) {
+                        label.setText(suggestion.path + " (all files matching " + suggestion.filter + ")");
+                    } else if (sizeIndex.isReady()) {
+                        // Flags oversized folders before they are selected
+                        DirectorySizeIndex.Totals totals = sizeIndex.getTotals(suggestion.path, true);
+                        boolean large = totals.bytes > FileCopierSettings.getInstance().getLargeFolderWarningBytes();
+                        label.setText(suggestion.path + " (" + totals.describe() + ")" + (large ? " ⚠️" : ""));
+                    } else {
+                        label.setText(suggestion.path);
+                    }
+                } else if (suggestion.kind != FileItem.Kind.FILE) {
+                    label.setIcon(AllIcons.Vcs.Changelist);
+                    label.setText(suggestion.path + (suggestion.kind == FileItem.Kind.GIT_STAGED
+                            ? " (staged changes, index vs HEAD)" : " (all files that differ from HEAD)"));
                 } else {
-                    label.setIcon(AllIcons.FileTypes.Text);
+                    Icon icon = getFileIcon(suggestion.path);
+                    label.setIcon(icon != null ? icon : AllIcons.FileTypes.Text);
                     label.setText(suggestion.path);
                 }
             }
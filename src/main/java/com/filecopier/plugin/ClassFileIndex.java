@@ -0,0 +1,343 @@
+package com.filecopier.plugin;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ModuleRootEvent;
+import com.intellij.openapi.roots.ModuleRootListener;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.VirtualFileVisitor;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileCopyEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileCreateEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileDeleteEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Maps the fully qualified name of every top-level source file, e.g.
+ * {@code com.foo.Bar} for {@code com/foo/Bar.java}, to its file, so stack
+ * frames resolve with a single lookup. Built in the background when the
+ * project opens, then patched from VFS events below the content source roots;
+ * events elsewhere, such as compiler output, are ignored.
+ */
+@Service
+public final class ClassFileIndex implements Disposable {
+    private static final Set<String> SOURCE_EXTENSIONS = Set.of("java", "kt", "groovy", "scala");
+
+    /**
+     * A content source root and the package prefix of its files
+     */
+    private static final class SourceRoot {
+        final VirtualFile dir;
+        final String packagePrefix;
+
+        SourceRoot(VirtualFile dir, String packagePrefix) {
+            this.dir = dir;
+            this.packagePrefix = packagePrefix;
+        }
+
+        boolean isSameAs(SourceRoot other) {
+            return dir.equals(other.dir) && packagePrefix.equals(other.packagePrefix);
+        }
+    }
+
+    private final Project project;
+    private volatile Map<String, VirtualFile> filesByName = new ConcurrentHashMap<>();
+    private final CountDownLatch built = new CountDownLatch(1);
+    private final ExecutorService indexExecutor =
+            AppExecutorUtil.createBoundedApplicationPoolExecutor("FileCopier Class Index", 1);
+    private volatile List<SourceRoot> sourceRoots;
+    private final AtomicBoolean updateQueued = new AtomicBoolean();
+    private boolean started = false;
+
+    public ClassFileIndex(Project project) {
+        this.project = project;
+
+        project.getMessageBus().connect(this).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+            @Override
+            public void before(@NotNull List<? extends VFileEvent> events) {
+                handleRemovals(events);
+            }
+
+            @Override
+            public void after(@NotNull List<? extends VFileEvent> events) {
+                handleAdditions(events);
+            }
+        });
+        project.getMessageBus().connect(this).subscribe(ModuleRootListener.TOPIC, new ModuleRootListener() {
+            @Override
+            public void rootsChanged(@NotNull ModuleRootEvent event) {
+                // A burst of root changes, as during a project sync, costs one update
+                if (isStarted() && updateQueued.compareAndSet(false, true)) {
+                    indexExecutor.execute(() -> {
+                        updateQueued.set(false);
+                        updateRoots();
+                    });
+                }
+            }
+        });
+    }
+
+    /**
+     * Gets the index instance for the specified project
+     */
+    public static ClassFileIndex getInstance(Project project) {
+        return project.getService(ClassFileIndex.class);
+    }
+
+    /**
+     * Builds the index in the background, if not already started
+     */
+    public synchronized void ensureStarted() {
+        if (started) return;
+        started = true;
+        indexExecutor.execute(this::build);
+    }
+
+    private synchronized boolean isStarted() {
+        return started;
+    }
+
+    /**
+     * Finds the source file declaring the class. Nested classes ({@code Bar$Inner})
+     * and file facades are resolved through the source file name of the frame.
+     * Waits for the initial build, so call it off the EDT.
+     */
+    VirtualFile find(String className, String sourceFileName) {
+        ensureStarted();
+        try {
+            built.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+
+        int lastDot = className.lastIndexOf('.');
+        String packageName = lastDot < 0 ? "" : className.substring(0, lastDot);
+
+        int extension = sourceFileName.lastIndexOf('.');
+        String baseName = extension < 0 ? sourceFileName : sourceFileName.substring(0, extension);
+        return filesByName.get(packageName.isEmpty() ? baseName : packageName + "." + baseName);
+    }
+
+    private List<SourceRoot> collectSourceRoots() {
+        ProjectFileIndex fileIndex = ProjectFileIndex.getInstance(project);
+        return ReadAction.compute(() -> {
+            List<SourceRoot> result = new ArrayList<>();
+            for (VirtualFile dir : ProjectRootManager.getInstance(project).getContentSourceRoots()) {
+                String rootPackage = fileIndex.getPackageNameByDirectory(dir);
+                result.add(new SourceRoot(dir, rootPackage == null || rootPackage.isEmpty() ? "" : rootPackage + "."));
+            }
+            return result;
+        });
+    }
+
+    private void build() {
+        try {
+            List<SourceRoot> roots = collectSourceRoots();
+            Map<String, VirtualFile> index = new ConcurrentHashMap<>();
+            for (SourceRoot root : roots) {
+                addSubtree(index, root, root.dir);
+            }
+            filesByName = index;
+            sourceRoots = roots;
+        } finally {
+            built.countDown();
+        }
+    }
+
+    /**
+     * Applies a change of the source roots: only added roots are walked and the
+     * files of removed ones dropped. A root added or removed inside another root
+     * changes the names below it, so that case rebuilds the whole index.
+     */
+    private void updateRoots() {
+        List<SourceRoot> previous = sourceRoots;
+        if (previous == null) {
+            build();
+            return;
+        }
+
+        List<SourceRoot> current = collectSourceRoots();
+        List<SourceRoot> added = missingFrom(current, previous);
+        List<SourceRoot> removed = missingFrom(previous, current);
+        List<SourceRoot> changed = new ArrayList<>(added);
+        changed.addAll(removed);
+        for (SourceRoot root : changed) {
+            if (hasNestedRoot(root, current) || hasNestedRoot(root, previous)) {
+                build();
+                return;
+            }
+        }
+
+        Map<String, VirtualFile> index = filesByName;
+        for (SourceRoot root : removed) {
+            index.values().removeIf(file -> VfsUtilCore.isAncestor(root.dir, file, false));
+        }
+        for (SourceRoot root : added) {
+            addSubtree(index, root, root.dir);
+        }
+        sourceRoots = current;
+    }
+
+    /**
+     * The roots of the first list that the second one has no equal of
+     */
+    private static List<SourceRoot> missingFrom(List<SourceRoot> roots, List<SourceRoot> others) {
+        List<SourceRoot> missing = new ArrayList<>();
+        for (SourceRoot root : roots) {
+            if (others.stream().noneMatch(root::isSameAs)) missing.add(root);
+        }
+        return missing;
+    }
+
+    private static boolean hasNestedRoot(SourceRoot root, List<SourceRoot> others) {
+        for (SourceRoot other : others) {
+            if (!other.dir.equals(root.dir) && (VfsUtilCore.isAncestor(other.dir, root.dir, true)
+                    || VfsUtilCore.isAncestor(root.dir, other.dir, true))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Drops deleted, moved and renamed sources while they still have their old name
+     */
+    private void handleRemovals(List<? extends VFileEvent> events) {
+        List<SourceRoot> roots = sourceRoots;
+        if (roots == null) return;
+
+        Map<String, VirtualFile> removedFiles = new HashMap<>();
+        List<VirtualFile> removedDirs = new ArrayList<>();
+        for (VFileEvent event : events) {
+            boolean rename = event instanceof VFilePropertyChangeEvent && ((VFilePropertyChangeEvent) event).isRename();
+            if (!(event instanceof VFileDeleteEvent) && !(event instanceof VFileMoveEvent) && !rename) continue;
+
+            VirtualFile file = event.getFile();
+            SourceRoot root = file != null ? findRoot(roots, file) : null;
+            if (root == null) continue;
+
+            if (file.isDirectory()) {
+                removedDirs.add(file);
+            } else if (isSource(file)) {
+                removedFiles.put(qualifiedName(root, file), file);
+            }
+        }
+        if (removedFiles.isEmpty() && removedDirs.isEmpty()) return;
+
+        indexExecutor.execute(() -> {
+            Map<String, VirtualFile> index = filesByName;
+            removedFiles.forEach(index::remove);
+            if (!removedDirs.isEmpty()) {
+                // Children move along with their folder, and deleted ones are no longer valid
+                index.values().removeIf(file -> !file.isValid()
+                        || removedDirs.stream().anyMatch(dir -> VfsUtilCore.isAncestor(dir, file, false)));
+            }
+        });
+    }
+
+    /**
+     * Adds created, copied, moved and renamed sources below the source roots
+     */
+    private void handleAdditions(List<? extends VFileEvent> events) {
+        List<SourceRoot> roots = sourceRoots;
+        if (roots == null) return;
+
+        List<VirtualFile> added = new ArrayList<>();
+        for (VFileEvent event : events) {
+            VirtualFile file;
+            if (event instanceof VFileCreateEvent || event instanceof VFileMoveEvent
+                    || (event instanceof VFilePropertyChangeEvent && ((VFilePropertyChangeEvent) event).isRename())) {
+                file = event.getFile();
+            } else if (event instanceof VFileCopyEvent) {
+                file = ((VFileCopyEvent) event).findCreatedFile();
+            } else {
+                continue;
+            }
+            if (file != null && (file.isDirectory() || isSource(file)) && findRoot(roots, file) != null) {
+                added.add(file);
+            }
+        }
+        if (added.isEmpty()) return;
+
+        indexExecutor.execute(() -> {
+            for (VirtualFile file : added) {
+                SourceRoot root = file.isValid() ? findRoot(roots, file) : null;
+                if (root != null) addSubtree(filesByName, root, file);
+            }
+        });
+    }
+
+    private void addSubtree(Map<String, VirtualFile> index, SourceRoot root, VirtualFile start) {
+        ProjectFileIndex fileIndex = ProjectFileIndex.getInstance(project);
+        VfsUtilCore.visitChildrenRecursively(start, new VirtualFileVisitor<Void>() {
+            @Override
+            public boolean visitFile(@NotNull VirtualFile file) {
+                if (file.isDirectory()) {
+                    return !ReadAction.compute(() -> fileIndex.isExcluded(file));
+                }
+                if (isSource(file)) {
+                    index.putIfAbsent(qualifiedName(root, file), file);
+                }
+                return true;
+            }
+        });
+    }
+
+    /**
+     * The innermost source root containing the file, or null
+     */
+    private static SourceRoot findRoot(List<SourceRoot> roots, VirtualFile file) {
+        SourceRoot best = null;
+        for (SourceRoot root : roots) {
+            if (VfsUtilCore.isAncestor(root.dir, file, false)
+                    && (best == null || VfsUtilCore.isAncestor(best.dir, root.dir, true))) {
+                best = root;
+            }
+        }
+        return best;
+    }
+
+    private static boolean isSource(VirtualFile file) {
+        String extension = file.getExtension();
+        return extension != null && SOURCE_EXTENSIONS.contains(extension);
+    }
+
+    /**
+     * Derives the name from the directory below the source root, which is
+     * what the package has to match for the class to be found at runtime
+     */
+    private static String qualifiedName(SourceRoot root, VirtualFile file) {
+        String directory = VfsUtilCore.getRelativePath(file.getParent(), root.dir, '.');
+        StringBuilder name = new StringBuilder(root.packagePrefix);
+        if (directory != null && !directory.isEmpty()) {
+            name.append(directory).append('.');
+        }
+        return name.append(file.getNameWithoutExtension()).toString();
+    }
+
+    @Override
+    public void dispose() {
+        indexExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,377 @@
+package com.filecopier.plugin;
+
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.project.ProjectUtil;
+import com.intellij.openapi.roots.ContentEntry;
+import com.intellij.openapi.roots.ModuleRootManager;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.logging.Logger;
+
+/**
+ * Snapshot of the project content roots that search and copy are based on.
+ * Paths handed to the UI are prefixed with the name of the module owning the
+ * root, e.g. {@code core/src/Main.java}.
+ */
+final class ContentRoots {
+    private static final Logger LOGGER = Logger.getLogger(ContentRoots.class.getName());
+    // Own pool, so walks that wait on read actions never starve the shared common pool
+    private static final ForkJoinPool WALK_POOL = new ForkJoinPool(
+            Math.max(2, Runtime.getRuntime().availableProcessors() - 1),
+            pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("FileCopier Walk " + thread.getPoolIndex());
+                return thread;
+            }, null, false);
+
+    /**
+     * Visitor for {@link #walk}; returning false prunes a directory
+     */
+    interface Visitor {
+        boolean visit(String relativePath, VirtualFile file, boolean ignored);
+    }
+
+    /**
+     * A single content root with its own .gitignore rules
+     */
+    static final class Root {
+        final String name;
+        final VirtualFile dir;
+        final GitIgnoreParser gitIgnoreParser;
+        // Excluded folders and .gitignore stamp, which decide what a walk of the root sees
+        final String walkRules;
+
+        Root(String name, VirtualFile dir, GitIgnoreParser gitIgnoreParser, String walkRules) {
+            this.name = name;
+            this.dir = dir;
+            this.gitIgnoreParser = gitIgnoreParser;
+            this.walkRules = walkRules;
+        }
+
+        boolean isIgnored(String pathInRoot, boolean isDirectory) {
+            return gitIgnoreParser != null && gitIgnoreParser.isIgnored(pathInRoot, isDirectory);
+        }
+
+        /**
+         * Whether a walk of both roots yields the same paths
+         */
+        boolean isSameAs(Root other) {
+            return other != null && name.equals(other.name) && dir.equals(other.dir) && walkRules.equals(other.walkRules);
+        }
+    }
+
+    private final Project project;
+    private final Map<String, Root> roots;
+    private final Set<VirtualFile> rootDirs = new HashSet<>();
+
+    private ContentRoots(Project project, Map<String, Root> roots) {
+        this.project = project;
+        this.roots = roots;
+        for (Root root : roots.values()) {
+            rootDirs.add(root.dir);
+        }
+    }
+
+    /**
+     * Collects the content roots of all modules, falling back to the project
+     * directory for projects without modules
+     */
+    static ContentRoots collect(Project project) {
+        Map<String, Root> roots = new LinkedHashMap<>();
+        ReadAction.run(() -> {
+            for (Module module : ModuleManager.getInstance(project).getModules()) {
+                for (ContentEntry entry : ModuleRootManager.getInstance(module).getContentEntries()) {
+                    VirtualFile dir = entry.getFile();
+                    if (dir == null) continue;
+
+                    String name = uniqueName(roots, module.getName(), dir);
+                    roots.put(name, createRoot(name, dir, String.join(";", entry.getExcludeFolderUrls())));
+                }
+            }
+        });
+
+        VirtualFile baseDir = roots.isEmpty() ? ProjectUtil.guessProjectDir(project) : null;
+        if (baseDir != null) {
+            roots.put(project.getName(), createRoot(project.getName(), baseDir, ""));
+        }
+        return new ContentRoots(project, roots);
+    }
+
+    /**
+     * The module name for its first content root; further roots of the module get
+     * the folder name appended, and a counter if that is taken as well
+     */
+    private static String uniqueName(Map<String, Root> roots, String moduleName, VirtualFile dir) {
+        if (!roots.containsKey(moduleName)) return moduleName;
+
+        String name = moduleName + "-" + dir.getName();
+        for (int i = 2; roots.containsKey(name); i++) {
+            name = moduleName + "-" + dir.getName() + "-" + i;
+        }
+        return name;
+    }
+
+    private static Root createRoot(String name, VirtualFile dir, String excludes) {
+        // Stamped before parsing, so an edit made meanwhile shows up as a change
+        long gitIgnoreStamp = new File(dir.getPath(), ".gitignore").lastModified();
+        return new Root(name, dir, loadGitIgnore(dir), excludes + ";" + gitIgnoreStamp);
+    }
+
+    private static GitIgnoreParser loadGitIgnore(VirtualFile dir) {
+        File gitignore = new File(dir.getPath(), ".gitignore");
+        if (!gitignore.exists()) return null;
+        try {
+            return new GitIgnoreParser(gitignore);
+        } catch (IOException e) {
+            LOGGER.warning("Failed to parse " + gitignore.getPath() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    List<Root> getRoots() {
+        return new ArrayList<>(roots.values());
+    }
+
+    /**
+     * Signature identifying this set of roots with their excluded folders and
+     * .gitignore files, used to validate persisted state
+     */
+    String getSignature() {
+        StringBuilder signature = new StringBuilder();
+        for (Root root : roots.values()) {
+            signature.append(root.name).append('=').append(root.dir.getPath())
+                    .append('[').append(root.walkRules).append("];");
+        }
+        return signature.toString();
+    }
+
+    /**
+     * The roots that are new or walk differently compared to an earlier snapshot,
+     * or null when the change cannot be applied root by root because an added or
+     * removed root lies inside another root
+     */
+    List<Root> getAddedRoots(ContentRoots previous) {
+        if (previous == null) return getRoots();
+
+        List<Root> added = new ArrayList<>();
+        for (Root root : roots.values()) {
+            if (!root.isSameAs(previous.roots.get(root.name))) added.add(root);
+        }
+        List<Root> changed = new ArrayList<>(added);
+        changed.addAll(getRemovedRoots(previous));
+        for (Root root : changed) {
+            if (isNested(root, roots.values()) || isNested(root, previous.roots.values())) return null;
+        }
+        return added;
+    }
+
+    /**
+     * The roots of an earlier snapshot that are gone or walk differently now
+     */
+    List<Root> getRemovedRoots(ContentRoots previous) {
+        List<Root> removed = new ArrayList<>();
+        if (previous == null) return removed;
+
+        for (Root root : previous.roots.values()) {
+            if (!root.isSameAs(roots.get(root.name))) removed.add(root);
+        }
+        return removed;
+    }
+
+    private static boolean isNested(Root root, Collection<Root> others) {
+        for (Root other : others) {
+            if (!other.dir.equals(root.dir) && (VfsUtilCore.isAncestor(other.dir, root.dir, true)
+                    || VfsUtilCore.isAncestor(root.dir, other.dir, true))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds the innermost root containing the absolute path
+     */
+    Root findRoot(String absolutePath) {
+        Root best = null;
+        for (Root root : roots.values()) {
+            String rootPath = root.dir.getPath();
+            if ((absolutePath.equals(rootPath) || absolutePath.startsWith(rootPath + "/"))
+                    && (best == null || rootPath.length() > best.dir.getPath().length())) {
+                best = root;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Gets the module-prefixed path of the file, or null if it lies outside all roots
+     */
+    String getRelativePath(VirtualFile file) {
+        return getRelativePath(file.getPath());
+    }
+
+    /**
+     * Gets the module-prefixed path of an absolute path, or null if it lies outside all roots
+     */
+    String getRelativePath(String absolutePath) {
+        Root root = findRoot(absolutePath);
+        if (root == null) return null;
+
+        String rootPath = root.dir.getPath();
+        if (absolutePath.length() == rootPath.length()) return root.name;
+        return root.name + "/" + absolutePath.substring(rootPath.length() + 1);
+    }
+
+    /**
+     * Resolves a module-prefixed path back to its file
+     */
+    VirtualFile resolve(String relativePath) {
+        int slash = relativePath.indexOf('/');
+        Root root = roots.get(slash < 0 ? relativePath : relativePath.substring(0, slash));
+        if (root == null || !root.dir.isValid()) return null;
+        return slash < 0 ? root.dir : root.dir.findFileByRelativePath(relativePath.substring(slash + 1));
+    }
+
+    /**
+     * Whether the file matches the .gitignore rules of its root
+     */
+    boolean isIgnored(VirtualFile file) {
+        Root root = findRoot(file.getPath());
+        if (root == null) return false;
+        String pathInRoot = VfsUtilCore.getRelativePath(file, root.dir);
+        return pathInRoot != null && root.isIgnored(pathInRoot, file.isDirectory());
+    }
+
+    /**
+     * Whether the file or one of its folders below the root matches the .gitignore rules
+     */
+    boolean isIgnoredWithParents(VirtualFile file) {
+        Root root = findRoot(file.getPath());
+        if (root == null) return false;
+        for (VirtualFile current = file; current != null && !current.equals(root.dir); current = current.getParent()) {
+            String pathInRoot = VfsUtilCore.getRelativePath(current, root.dir);
+            if (pathInRoot != null && root.isIgnored(pathInRoot, current.isDirectory())) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Whether the file lies in a folder excluded from the project
+     */
+    boolean isExcluded(VirtualFile file) {
+        return ReadAction.compute(() -> ProjectFileIndex.getInstance(project).isExcluded(file));
+    }
+
+    /**
+     * Walks all roots in parallel on the walk pool. The visitor is called
+     * concurrently and must be thread-safe.
+     */
+    void walkAll(Visitor visitor) {
+        walkRoots(roots.values(), visitor);
+    }
+
+    /**
+     * Walks the given roots of this snapshot in parallel, like {@link #walkAll}
+     */
+    void walkRoots(Collection<Root> selected, Visitor visitor) {
+        List<WalkTask> tasks = new ArrayList<>();
+        for (Root root : selected) {
+            tasks.add(new WalkTask(root, root.dir, visitor));
+        }
+        WALK_POOL.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+    }
+
+    /**
+     * Walks the subtree below the directory sequentially
+     */
+    void walk(VirtualFile dir, Visitor visitor) {
+        Root root = findRoot(dir.getPath());
+        if (root == null) return;
+
+        for (Child child : listChildren(root, dir)) {
+            if (visitor.visit(child.relativePath, child.file, child.ignored) && child.file.isDirectory()) {
+                walk(child.file, visitor);
+            }
+        }
+    }
+
+    private static final class Child {
+        final VirtualFile file;
+        final String relativePath;
+        final boolean ignored;
+
+        Child(VirtualFile file, String relativePath, boolean ignored) {
+            this.file = file;
+            this.relativePath = relativePath;
+            this.ignored = ignored;
+        }
+    }
+
+    /**
+     * Lists the children of a directory, pruning excluded folders and nested
+     * content roots, which are walked as roots of their own
+     */
+    private List<Child> listChildren(Root root, VirtualFile dir) {
+        if (!dir.isValid() || project.isDisposed()) return Collections.emptyList();
+
+        return ReadAction.compute(() -> {
+            ProjectFileIndex fileIndex = ProjectFileIndex.getInstance(project);
+            List<Child> children = new ArrayList<>();
+            for (VirtualFile child : dir.getChildren()) {
+                if (rootDirs.contains(child) || fileIndex.isExcluded(child)) continue;
+
+                String pathInRoot = VfsUtilCore.getRelativePath(child, root.dir);
+                if (pathInRoot == null) continue;
+                children.add(new Child(child, root.name + "/" + pathInRoot,
+                        root.isIgnored(pathInRoot, child.isDirectory())));
+            }
+            return children;
+        });
+    }
+
+    private final class WalkTask extends RecursiveAction {
+        private final Root root;
+        private final VirtualFile dir;
+        private final Visitor visitor;
+
+        WalkTask(Root root, VirtualFile dir, Visitor visitor) {
+            this.root = root;
+            this.dir = dir;
+            this.visitor = visitor;
+        }
+
+        @Override
+        protected void compute() {
+            List<WalkTask> subtasks = new ArrayList<>();
+            for (Child child : listChildren(root, dir)) {
+                if (visitor.visit(child.relativePath, child.file, child.ignored) && child.file.isDirectory()) {
+                    subtasks.add(new WalkTask(root, child.file, visitor));
+                }
+            }
+            invokeAll(subtasks);
+        }
+    }
+}
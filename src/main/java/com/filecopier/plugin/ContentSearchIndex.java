@@ -0,0 +1,374 @@
+package com.filecopier.plugin;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ModuleRootEvent;
+import com.intellij.openapi.roots.ModuleRootListener;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileContentChangeEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileCreateEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileDeleteEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+/**
+ * Trigram posting-list index over the text files below the project content
+ * roots, used by the {@code #?"text"} content query. Candidates are narrowed
+ * through the index and only those candidates are read to confirm the match.
+ * A changed file is indexed under a new id and its old id is only marked dead;
+ * dead ids are purged from the posting lists and the ids renumbered once they
+ * make up a quarter of all ids.
+ */
+@Service
+public final class ContentSearchIndex implements Disposable {
+    private static final Logger LOGGER = Logger.getLogger(ContentSearchIndex.class.getName());
+    private static final long MAX_INDEXED_FILE_SIZE = 1024 * 1024;
+    private static final int MIN_DEAD_IDS_TO_COMPACT = 1024;
+
+    private final Project project;
+    private final ExecutorService indexExecutor =
+            AppExecutorUtil.createBoundedApplicationPoolExecutor("FileCopier Content Index", 1);
+
+    // All fields below are guarded by "this"
+    private Long2ObjectOpenHashMap<IntSet> postings = new Long2ObjectOpenHashMap<>();
+    private final Map<VirtualFile, Integer> fileIds = new HashMap<>();
+    // Indexed file of each id; null for dead ids that are still in posting lists
+    private List<VirtualFile> files = new ArrayList<>();
+    // Modification stamp of each id's file when it was indexed
+    private LongArrayList fileStamps = new LongArrayList();
+    private int deadIds = 0;
+    private boolean ready = false;
+    private boolean started = false;
+    private final AtomicBoolean updateQueued = new AtomicBoolean();
+
+    // Only touched from the index executor
+    private ContentRoots roots;
+
+    public ContentSearchIndex(Project project) {
+        this.project = project;
+
+        project.getMessageBus().connect(this).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+            @Override
+            public void after(@NotNull List<? extends VFileEvent> events) {
+                handleVfsEvents(events);
+            }
+        });
+        project.getMessageBus().connect(this).subscribe(ModuleRootListener.TOPIC, new ModuleRootListener() {
+            @Override
+            public void rootsChanged(@NotNull ModuleRootEvent event) {
+                if (isStarted()) {
+                    requestUpdate();
+                }
+            }
+        });
+    }
+
+    /**
+     * Gets the index instance for the specified project
+     */
+    public static ContentSearchIndex getInstance(Project project) {
+        return project.getService(ContentSearchIndex.class);
+    }
+
+    /**
+     * Starts building the index in the background, if not already started
+     */
+    public synchronized void ensureStarted() {
+        if (started) return;
+        started = true;
+        indexExecutor.execute(this::updateIndex);
+    }
+
+    /**
+     * Whether the initial background build has finished
+     */
+    public synchronized boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Finds indexed files whose content contains the text, ignoring case.
+     * Queries shorter than three characters have no trigrams and return nothing.
+     */
+    public List<VirtualFile> search(String text, int limit) {
+        List<VirtualFile> result = new ArrayList<>();
+        long[] queryTrigrams = trigramsOf(text);
+        if (queryTrigrams.length == 0) return result;
+
+        for (VirtualFile candidate : findCandidates(queryTrigrams)) {
+            if (result.size() >= limit) break;
+            if (!candidate.isValid()) continue;
+            try {
+                String content = VfsUtilCore.loadText(candidate);
+                if (StringUtil.indexOfIgnoreCase(content, text, 0) >= 0) {
+                    result.add(candidate);
+                }
+            } catch (IOException e) {
+                LOGGER.fine("Skipping unreadable candidate " + candidate.getPath() + ": " + e.getMessage());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Intersects the posting lists of all query trigrams, smallest first
+     */
+    private synchronized List<VirtualFile> findCandidates(long[] queryTrigrams) {
+        List<IntSet> lists = new ArrayList<>();
+        for (long trigram : queryTrigrams) {
+            IntSet posting = postings.get(trigram);
+            if (posting == null) return new ArrayList<>();
+            lists.add(posting);
+        }
+        lists.sort((a, b) -> Integer.compare(a.size(), b.size()));
+
+        List<VirtualFile> candidates = new ArrayList<>();
+        for (int id : lists.get(0)) {
+            if (files.get(id) == null) continue;
+            boolean inAll = true;
+            for (int i = 1; i < lists.size() && inAll; i++) {
+                inAll = lists.get(i).contains(id);
+            }
+            if (inAll) {
+                candidates.add(files.get(id));
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Queues an index update, unless one is already queued and has not started
+     * yet; a burst of root changes, as during a project sync, then costs one update
+     */
+    private void requestUpdate() {
+        if (updateQueued.compareAndSet(false, true)) {
+            indexExecutor.execute(() -> {
+                updateQueued.set(false);
+                updateIndex();
+            });
+        }
+    }
+
+    /**
+     * Re-collects the content roots, drops files that are no longer below a root
+     * or now ignored, and walks the roots that were added or whose ignore rules
+     * changed. Files whose modification stamp is unchanged are not read again.
+     */
+    private void updateIndex() {
+        ContentRoots previous = roots;
+        roots = ContentRoots.collect(project);
+        removeStaleFiles();
+        List<ContentRoots.Root> added = roots.getAddedRoots(previous);
+        roots.walkRoots(added != null ? added : roots.getRoots(), this::visit);
+        synchronized (this) {
+            ready = true;
+        }
+    }
+
+    private boolean visit(String relativePath, VirtualFile file, boolean ignored) {
+        if (ignored) return false;
+        if (!file.isDirectory()) {
+            indexFile(file);
+        }
+        return true;
+    }
+
+    private void indexFile(VirtualFile file) {
+        if (!file.isValid() || file.isDirectory() || file.getFileType().isBinary()
+                || file.getLength() > MAX_INDEXED_FILE_SIZE) {
+            removeFile(file);
+            return;
+        }
+
+        long stamp = file.getModificationStamp();
+        synchronized (this) {
+            Integer id = fileIds.get(file);
+            if (id != null && fileStamps.getLong(id) == stamp) return;
+        }
+
+        long[] trigrams;
+        try {
+            trigrams = trigramsOf(VfsUtilCore.loadText(file));
+        } catch (IOException e) {
+            removeFile(file);
+            return;
+        }
+
+        synchronized (this) {
+            removeFile(file);
+            int id = files.size();
+            files.add(file);
+            fileStamps.add(stamp);
+            fileIds.put(file, id);
+            for (long trigram : trigrams) {
+                IntSet posting = postings.get(trigram);
+                if (posting == null) {
+                    posting = new IntOpenHashSet();
+                    postings.put(trigram, posting);
+                }
+                posting.add(id);
+            }
+        }
+    }
+
+    private synchronized void removeFile(VirtualFile file) {
+        Integer id = fileIds.remove(file);
+        if (id == null) return;
+
+        files.set(id, null);
+        deadIds++;
+        if (deadIds >= MIN_DEAD_IDS_TO_COMPACT && deadIds * 4 >= files.size()) {
+            compact();
+        }
+    }
+
+    /**
+     * Drops dead ids from the posting lists and renumbers the live ones densely
+     */
+    private void compact() {
+        int[] newIds = new int[files.size()];
+        List<VirtualFile> live = new ArrayList<>(files.size() - deadIds);
+        LongArrayList liveStamps = new LongArrayList(files.size() - deadIds);
+        for (int id = 0; id < files.size(); id++) {
+            VirtualFile file = files.get(id);
+            newIds[id] = file == null ? -1 : live.size();
+            if (file != null) {
+                fileIds.put(file, live.size());
+                live.add(file);
+                liveStamps.add(fileStamps.getLong(id));
+            }
+        }
+
+        Long2ObjectOpenHashMap<IntSet> compacted = new Long2ObjectOpenHashMap<>(postings.size());
+        for (Long2ObjectMap.Entry<IntSet> entry : postings.long2ObjectEntrySet()) {
+            IntSet posting = new IntOpenHashSet(entry.getValue().size());
+            for (int id : entry.getValue()) {
+                if (newIds[id] >= 0) posting.add(newIds[id]);
+            }
+            if (!posting.isEmpty()) {
+                compacted.put(entry.getLongKey(), posting);
+            }
+        }
+        postings = compacted;
+        files = live;
+        fileStamps = liveStamps;
+        deadIds = 0;
+    }
+
+    /**
+     * Drops every file that was deleted, moved out of the project or is now ignored
+     */
+    private synchronized void removeStaleFiles() {
+        for (VirtualFile file : new ArrayList<>(fileIds.keySet())) {
+            if (!file.isValid() || roots.getRelativePath(file) == null || roots.isIgnoredWithParents(file)) {
+                removeFile(file);
+            }
+        }
+    }
+
+    /**
+     * Drops the indexed files below a folder that became ignored or excluded
+     */
+    private synchronized void removeFilesUnder(VirtualFile dir) {
+        for (VirtualFile file : new ArrayList<>(fileIds.keySet())) {
+            if (VfsUtilCore.isAncestor(dir, file, false)) {
+                removeFile(file);
+            }
+        }
+    }
+
+    private void handleVfsEvents(List<? extends VFileEvent> events) {
+        if (!isStarted()) return;
+
+        List<VirtualFile> changed = new ArrayList<>();
+        boolean removals = false;
+        boolean ignoreRulesChanged = false;
+        for (VFileEvent event : events) {
+            if (event.getPath().endsWith("/.gitignore")) {
+                ignoreRulesChanged = true;
+            }
+            // A renamed file is re-checked against the ignore rules under its new name
+            boolean rename = event instanceof VFilePropertyChangeEvent && ((VFilePropertyChangeEvent) event).isRename();
+            if (event instanceof VFileContentChangeEvent || event instanceof VFileCreateEvent
+                    || event instanceof VFileMoveEvent || rename) {
+                VirtualFile file = event.getFile();
+                if (file != null) changed.add(file);
+            }
+            if (event instanceof VFileDeleteEvent || event instanceof VFileMoveEvent) {
+                removals = true;
+            }
+        }
+        if (ignoreRulesChanged) {
+            // Re-parses the rules, drops newly ignored files and indexes newly visible ones
+            requestUpdate();
+            return;
+        }
+        if (changed.isEmpty() && !removals) return;
+
+        boolean purge = removals;
+        indexExecutor.execute(() -> {
+            if (purge) removeStaleFiles();
+            for (VirtualFile file : changed) {
+                if (!file.isValid() || roots.getRelativePath(file) == null) continue;
+                if (roots.isIgnoredWithParents(file) || roots.isExcluded(file)) {
+                    removeFile(file);
+                    if (file.isDirectory()) removeFilesUnder(file);
+                } else if (file.isDirectory()) {
+                    roots.walk(file, this::visit);
+                } else {
+                    indexFile(file);
+                }
+            }
+        });
+    }
+
+    private synchronized boolean isStarted() {
+        return started;
+    }
+
+    /**
+     * Collects the distinct lower-cased character trigrams of the text
+     */
+    static long[] trigramsOf(CharSequence text) {
+        if (text.length() < 3) return new long[0];
+
+        LongOpenHashSet trigrams = new LongOpenHashSet();
+        long c0 = Character.toLowerCase(text.charAt(0));
+        long c1 = Character.toLowerCase(text.charAt(1));
+        for (int i = 2; i < text.length(); i++) {
+            long c2 = Character.toLowerCase(text.charAt(i));
+            trigrams.add((c0 << 32) | (c1 << 16) | c2);
+            c0 = c1;
+            c1 = c2;
+        }
+        return trigrams.toLongArray();
+    }
+
+    @Override
+    public void dispose() {
+        indexExecutor.shutdownNow();
+    }
+}
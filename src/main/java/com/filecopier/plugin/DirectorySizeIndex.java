@@ -0,0 +1,361 @@
+package com.filecopier.plugin;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ModuleRootEvent;
+import com.intellij.openapi.roots.ModuleRootListener;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileContentChangeEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileCopyEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileCreateEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileDeleteEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import com.intellij.util.Alarm;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.intellij.util.messages.Topic;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Recursive file count and byte total of every folder below the content roots,
+ * built once in the background and then adjusted along the ancestor chain of
+ * each created, deleted, moved or changed file. Folder statistics are a single
+ * map lookup, so they are known before any file of a selection is read.
+ */
+@Service
+public final class DirectorySizeIndex implements Disposable {
+    static final Topic<Listener> TOPIC = Topic.create("FileCopier directory sizes", Listener.class);
+    private static final int PUBLISH_DELAY_MS = 200;
+
+    /**
+     * Notified on a pooled thread after the index was built or updated, at most
+     * once per {@value #PUBLISH_DELAY_MS} ms
+     */
+    public interface Listener {
+        void sizesChanged();
+    }
+
+    /**
+     * File count and byte total of a file or folder
+     */
+    static final class Totals {
+        static final Totals EMPTY = new Totals(0, 0);
+
+        final long files;
+        final long bytes;
+
+        Totals(long files, long bytes) {
+            this.files = files;
+            this.bytes = bytes;
+        }
+
+        Totals plus(Totals other) {
+            return new Totals(files + other.files, bytes + other.bytes);
+        }
+
+        Totals negate() {
+            return new Totals(-files, -bytes);
+        }
+
+        long getEstimatedTokens() {
+            return bytes / MultiPartOutput.CHARS_PER_TOKEN;
+        }
+
+        /**
+         * E.g. "1,234 files, 12.3 MB, ~3,225,000 tokens"
+         */
+        String describe() {
+            return String.format("%,d %s, %.1f MB, ~%,d tokens", files, files == 1 ? "file" : "files",
+                    bytes / (1024.0 * 1024.0), getEstimatedTokens());
+        }
+    }
+
+    private final Project project;
+    private final ExecutorService sizeExecutor =
+            AppExecutorUtil.createBoundedApplicationPoolExecutor("FileCopier Directory Sizes", 1);
+    private volatile Map<String, Totals> totals = new ConcurrentHashMap<>();
+    private volatile ContentRoots roots;
+    // Guards the build state below, so an event is either queued behind a build or makes it walk again
+    private final Object buildLock = new Object();
+    private boolean building = false;
+    private boolean buildQueued = false;
+    private boolean eventsDropped = false;
+    // Bursts of updates are announced once, so listeners do not re-resolve on every batch
+    private final Alarm publishAlarm = new Alarm(Alarm.ThreadToUse.POOLED_THREAD, this);
+    private final AtomicBoolean publishQueued = new AtomicBoolean();
+    // Lengths of changed files before the change, recorded between before() and after()
+    private final Map<VirtualFile, Long> oldLengths = new HashMap<>();
+    private boolean started = false;
+
+    public DirectorySizeIndex(Project project) {
+        this.project = project;
+
+        project.getMessageBus().connect(this).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+            @Override
+            public void before(@NotNull List<? extends VFileEvent> events) {
+                handleRemovals(events);
+            }
+
+            @Override
+            public void after(@NotNull List<? extends VFileEvent> events) {
+                handleAdditions(events);
+            }
+        });
+        project.getMessageBus().connect(this).subscribe(ModuleRootListener.TOPIC, new ModuleRootListener() {
+            @Override
+            public void rootsChanged(@NotNull ModuleRootEvent event) {
+                if (isStarted()) {
+                    requestBuild();
+                }
+            }
+        });
+    }
+
+    /**
+     * Gets the index instance for the specified project
+     */
+    public static DirectorySizeIndex getInstance(Project project) {
+        return project.getService(DirectorySizeIndex.class);
+    }
+
+    /**
+     * Builds the index in the background, if not already started
+     */
+    public synchronized void ensureStarted() {
+        if (started) return;
+        started = true;
+        requestBuild();
+    }
+
+    private synchronized boolean isStarted() {
+        return started;
+    }
+
+    /**
+     * Whether the initial build has finished
+     */
+    boolean isReady() {
+        return roots != null;
+    }
+
+    /**
+     * Totals of the module-prefixed file or folder; empty for unknown paths
+     * and while the index is being built
+     */
+    Totals getTotals(String relativePath, boolean directory) {
+        if (directory) {
+            return totals.getOrDefault(relativePath, Totals.EMPTY);
+        }
+
+        ContentRoots current = roots;
+        VirtualFile file = current != null ? current.resolve(relativePath) : null;
+        return file != null && file.isValid() ? new Totals(1, file.getLength()) : Totals.EMPTY;
+    }
+
+    /**
+     * Queues a build, unless one is already queued and has not started yet.
+     * Events from now on are dropped until the build has finished and covered them.
+     */
+    private void requestBuild() {
+        synchronized (buildLock) {
+            building = true;
+            if (buildQueued) return;
+            buildQueued = true;
+            sizeExecutor.execute(this::build);
+        }
+    }
+
+    /**
+     * Keeps the totals of unchanged roots and walks only the added ones; once
+     * events were dropped, the next pass walks every root
+     */
+    private void build() {
+        ContentRoots previous;
+        synchronized (buildLock) {
+            buildQueued = false;
+            previous = eventsDropped ? null : roots;
+            eventsDropped = false;
+        }
+        while (true) {
+            ContentRoots current = ContentRoots.collect(project);
+            List<ContentRoots.Root> added = current.getAddedRoots(previous);
+            Map<String, Totals> built = new ConcurrentHashMap<>();
+            if (previous != null && added != null) {
+                built.putAll(totals);
+                for (ContentRoots.Root root : current.getRemovedRoots(previous)) {
+                    String prefix = root.name + "/";
+                    built.keySet().removeIf(path -> path.equals(root.name) || path.startsWith(prefix));
+                }
+            }
+            current.walkRoots(added != null ? added : current.getRoots(), (relativePath, file, ignored) -> {
+                if (!file.isDirectory()) {
+                    addToAncestors(built, relativePath, new Totals(1, file.getLength()));
+                }
+                return true;
+            });
+            totals = built;
+            roots = current;
+            previous = null;
+
+            synchronized (buildLock) {
+                // A queued build covers later events itself, so events stay dropped until it ran
+                if (buildQueued) break;
+                if (!eventsDropped || project.isDisposed()) {
+                    building = false;
+                    break;
+                }
+                eventsDropped = false;
+            }
+        }
+        publish();
+    }
+
+    /**
+     * Subtracts deleted and moved files while they still have their old path
+     * and length; runs inside the write action, before the change
+     */
+    private void handleRemovals(List<? extends VFileEvent> events) {
+        ContentRoots current = roots;
+        if (current == null) return;
+
+        // Files carry their current length; folder totals are read once earlier updates have been applied
+        Map<String, Totals> removed = new HashMap<>();
+        for (VFileEvent event : events) {
+            VirtualFile file = event.getFile();
+            if (file == null || !file.isValid()) continue;
+
+            if (event instanceof VFileContentChangeEvent) {
+                oldLengths.put(file, file.getLength());
+                continue;
+            }
+            boolean rename = event instanceof VFilePropertyChangeEvent && ((VFilePropertyChangeEvent) event).isRename();
+            if (!(event instanceof VFileDeleteEvent) && !(event instanceof VFileMoveEvent) && !rename) continue;
+
+            String relativePath = current.getRelativePath(file);
+            if (relativePath == null) continue;
+            removed.put(relativePath, file.isDirectory() ? null : new Totals(1, file.getLength()));
+        }
+        if (removed.isEmpty()) return;
+
+        queueUnlessBuilding(() -> {
+            Map<String, Totals> index = totals;
+            for (Map.Entry<String, Totals> entry : removed.entrySet()) {
+                String relativePath = entry.getKey();
+                Totals removedTotals = entry.getValue() != null
+                        ? entry.getValue() : index.getOrDefault(relativePath, Totals.EMPTY);
+                addToAncestors(index, relativePath, removedTotals.negate());
+                String prefix = relativePath + "/";
+                index.keySet().removeIf(path -> path.equals(relativePath) || path.startsWith(prefix));
+            }
+            publish();
+        });
+    }
+
+    /**
+     * Adds created, copied and moved files and applies content size changes
+     */
+    private void handleAdditions(List<? extends VFileEvent> events) {
+        ContentRoots current = roots;
+        if (current == null) {
+            oldLengths.clear();
+            return;
+        }
+
+        List<VirtualFile> added = new ArrayList<>();
+        Map<String, Totals> changed = new HashMap<>();
+        for (VFileEvent event : events) {
+            if (event instanceof VFileContentChangeEvent) {
+                VirtualFile file = event.getFile();
+                Long oldLength = oldLengths.remove(file);
+                String relativePath = current.getRelativePath(file);
+                if (oldLength != null && relativePath != null && file.getLength() != oldLength) {
+                    changed.merge(relativePath, new Totals(0, file.getLength() - oldLength), Totals::plus);
+                }
+            } else if (event instanceof VFileCreateEvent || event instanceof VFileMoveEvent
+                    || (event instanceof VFilePropertyChangeEvent && ((VFilePropertyChangeEvent) event).isRename())) {
+                added.add(event.getFile());
+            } else if (event instanceof VFileCopyEvent) {
+                added.add(((VFileCopyEvent) event).findCreatedFile());
+            }
+        }
+        oldLengths.clear();
+        if (added.isEmpty() && changed.isEmpty()) return;
+
+        queueUnlessBuilding(() -> {
+            Map<String, Totals> index = totals;
+            changed.forEach((relativePath, delta) -> addToAncestors(index, relativePath, delta));
+            for (VirtualFile file : added) {
+                if (file != null && file.isValid()) addSubtree(roots, index, file);
+            }
+            publish();
+        });
+    }
+
+    /**
+     * Queues an update behind earlier ones; while a build is running or queued
+     * the update is dropped instead, and the build walks again to cover it
+     */
+    private void queueUnlessBuilding(Runnable update) {
+        synchronized (buildLock) {
+            if (building) {
+                eventsDropped = true;
+            } else {
+                sizeExecutor.execute(update);
+            }
+        }
+    }
+
+    private void addSubtree(ContentRoots contentRoots, Map<String, Totals> index, VirtualFile file) {
+        String relativePath = contentRoots.getRelativePath(file);
+        if (relativePath == null || contentRoots.isExcluded(file)) return;
+
+        if (!file.isDirectory()) {
+            addToAncestors(index, relativePath, new Totals(1, file.getLength()));
+            return;
+        }
+        contentRoots.walk(file, (childPath, child, ignored) -> {
+            if (!child.isDirectory()) {
+                addToAncestors(index, childPath, new Totals(1, child.getLength()));
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Adds the delta to every folder above the path, from the content root down
+     */
+    private static void addToAncestors(Map<String, Totals> index, String relativePath, Totals delta) {
+        int slash = relativePath.indexOf('/');
+        while (slash >= 0) {
+            index.merge(relativePath.substring(0, slash), delta, Totals::plus);
+            slash = relativePath.indexOf('/', slash + 1);
+        }
+    }
+
+    private void publish() {
+        if (!publishQueued.compareAndSet(false, true)) return;
+        publishAlarm.addRequest(() -> {
+            publishQueued.set(false);
+            if (!project.isDisposed()) {
+                project.getMessageBus().syncPublisher(TOPIC).sizesChanged();
+            }
+        }, PUBLISH_DELAY_MS);
+    }
+
+    @Override
+    public void dispose() {
+        sizeExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,70 @@
+package com.filecopier.plugin;
+
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.SelectionModel;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+
+/**
+ * The selection of an editor widened to whole lines plus context lines, tagged
+ * {@code path:startLine-endLine}. The text is sliced from the document through
+ * its line index, without going through the clipboard.
+ */
+public final class EditorSnippet {
+    private final String label;
+    private final String content;
+
+    private EditorSnippet(String label, String content) {
+        this.label = label;
+        this.content = content;
+    }
+
+    /**
+     * Captures the selection, or the caret line when nothing is selected; null
+     * when the file is not below a content root. Call on the EDT or in a read action.
+     */
+    public static EditorSnippet capture(Project project, Editor editor, int contextLines) {
+        Document document = editor.getDocument();
+        VirtualFile file = FileDocumentManager.getInstance().getFile(document);
+        if (file == null) return null;
+
+        String relativePath = ContentRoots.collect(project).getRelativePath(file);
+        if (relativePath == null) return null;
+
+        SelectionModel selection = editor.getSelectionModel();
+        int start = selection.getSelectionStart();
+        int end = selection.getSelectionEnd();
+        // A selection ending at the start of a line does not include that line
+        if (end > start && end == document.getLineStartOffset(document.getLineNumber(end))) {
+            end--;
+        }
+
+        int lastLine = Math.max(0, document.getLineCount() - 1);
+        int firstLine = Math.max(0, document.getLineNumber(start) - contextLines);
+        int endLine = Math.min(lastLine, document.getLineNumber(end) + contextLines);
+
+        String label = relativePath + ":" + (firstLine + 1) + "-" + (endLine + 1);
+        CharSequence lines = document.getImmutableCharSequence()
+                .subSequence(document.getLineStartOffset(firstLine), document.getLineEndOffset(endLine));
+
+        StringBuilder content = new StringBuilder(lines.length() + label.length() + 16);
+        content.append("### File: ").append(label).append(" ###\n").append(lines).append("\n\n");
+        return new EditorSnippet(label, content.toString());
+    }
+
+    /**
+     * The {@code path:startLine-endLine} tag, 1-based and inclusive
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * The snippet in bundle format
+     */
+    public String getContent() {
+        return content;
+    }
+}
@@ -0,0 +1,413 @@
+package com.filecopier.plugin;
+
+import com.filecopier.plugin.FileCopierService.FileItem;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns the selected files and folders into the {@code ### File: ... ###}
+ * bundle format. Folders are expanded first so the total byte count is known
+ * up front and progress can be reported as a fraction with throughput.
+ * Files identical to one written earlier are emitted as a reference only.
+ */
+final class FileBundler {
+    // FNV-1a over the chars of a file body
+    private static final long HASH_SEED = 0xcbf29ce484222325L;
+    private static final long HASH_PRIME = 0x100000001b3L;
+
+    private final Project project;
+    private final ContentRoots roots;
+    private final ProgressIndicator indicator;
+    private final BundlePrewarmer prewarmer;
+    private final List<Entry> entries = new ArrayList<>();
+    // Folders a filtered walk descended into without writing them, for selection set manifests
+    private final List<Entry> walkedFolders = new ArrayList<>();
+    private long totalBytes = 0;
+    private long processedBytes = 0;
+    private long startNanos;
+    private int fileCount = 0;
+    private int duplicateCount = 0;
+    private int currentItem = 0;
+    // Only files sharing their length with another file can be duplicates
+    private final Map<Long, Integer> filesByLength = new HashMap<>();
+    private final Map<Long, List<Written>> writtenByLength = new HashMap<>();
+
+    /**
+     * A folder heading, a file or a preformatted block such as a diff, in bundle order
+     */
+    private static final class Entry {
+        final String relativePath;
+        final VirtualFile file;
+        final String text;
+        // Index of the selected item this entry was expanded from
+        final int item;
+
+        Entry(String relativePath, VirtualFile file, String text, int item) {
+            this.relativePath = relativePath;
+            this.file = file;
+            this.text = text;
+            this.item = item;
+        }
+    }
+
+    /**
+     * A file written in full, with the hash of its body taken while it was written
+     */
+    private static final class Written {
+        final Entry entry;
+        final long hash;
+
+        Written(Entry entry, long hash) {
+            this.entry = entry;
+            this.hash = hash;
+        }
+    }
+
+    FileBundler(Project project, ProgressIndicator indicator) {
+        this.project = project;
+        this.roots = ContentRoots.collect(project);
+        this.indicator = indicator;
+        this.prewarmer = BundlePrewarmer.getInstance(project);
+    }
+
+    /**
+     * Expands the selected items into the ordered list of folders and files
+     */
+    void collect(List<FileItem> items) {
+        indicator.setText("Collecting files");
+        // A loaded selection set whose files are unchanged needs no folder walks
+        Map<Integer, List<SelectionSets.ManifestEntry>> manifest =
+                SelectionSets.getInstance(project).getCurrentManifest(items);
+
+        for (currentItem = 0; currentItem < items.size(); currentItem++) {
+            FileItem item = items.get(currentItem);
+            if (indicator.isCanceled()) return;
+
+            if (item.getKind() == FileItem.Kind.GIT_CHANGED) {
+                collectGitChanges(GitChanges.Scope.CHANGED);
+                continue;
+            } else if (item.getKind() == FileItem.Kind.GIT_STAGED) {
+                collectGitChanges(GitChanges.Scope.STAGED);
+                continue;
+            } else if (item.getKind() == FileItem.Kind.SNIPPET) {
+                addText(item.getPath(), item.getContent());
+                continue;
+            }
+
+            if (manifest != null) {
+                for (SelectionSets.ManifestEntry entry : manifest.getOrDefault(currentItem, List.of())) {
+                    if (entry.checkOnly) continue;
+                    VirtualFile file = roots.resolve(entry.path);
+                    if (file != null) addEntry(entry.path, file);
+                }
+                continue;
+            }
+
+            VirtualFile file = roots.resolve(item.getPath());
+            if (file == null || !file.isValid()) continue;
+
+            addEntry(item.getPath(), file);
+            if (item.isDirectory() && file.isDirectory()) {
+                PathQuery filter = item.getFilter() != null ? PathQuery.compile(item.getFilter()) : null;
+                // Excluded folders are pruned by the walk, folders outside the filter prefix here
+                roots.walk(file, (relative, child, ignored) -> {
+                    if (indicator.isCanceled()) return false;
+                    if (filter == null) {
+                        addEntry(relative, child);
+                        return true;
+                    }
+                    if (child.isDirectory()) {
+                        if (!filter.mayContain(relative)) return false;
+                        walkedFolders.add(new Entry(relative, child, null, currentItem));
+                        return true;
+                    }
+                    if (filter.matches(relative, false)) addEntry(relative, child);
+                    return true;
+                });
+            }
+        }
+    }
+
+    /**
+     * Adds the files that differ from HEAD, or only their diff hunks when so configured
+     */
+    private void collectGitChanges(GitChanges.Scope scope) {
+        FileCopierSettings.SettingsState settings = FileCopierSettings.getInstance().getState();
+        GitChanges gitChanges = GitChanges.getInstance(project);
+        try {
+            if (settings.gitHunksOnly) {
+                for (Map.Entry<String, String> hunk : gitChanges.getHunks(scope, settings.gitContextLines).entrySet()) {
+                    addText(hunk.getKey(), "### Diff: " + hunk.getKey() + " ###\n" + hunk.getValue() + "\n");
+                }
+                return;
+            }
+
+            for (GitChanges.Change change : gitChanges.getChanges(scope)) {
+                if (change.deleted) continue;
+                VirtualFile file = roots.resolve(change.relativePath);
+                if (file != null && file.isValid() && !file.isDirectory()) {
+                    addEntry(change.relativePath, file);
+                }
+            }
+        } catch (IOException e) {
+            addText("git", "### Diff: git ###\n(failed to read git changes: " + e.getMessage() + ")\n\n");
+        }
+    }
+
+    private void addText(String relativePath, String text) {
+        entries.add(new Entry(relativePath, null, text, currentItem));
+        totalBytes += text.length();
+    }
+
+    private void addEntry(String relativePath, VirtualFile file) {
+        entries.add(new Entry(relativePath, file, null, currentItem));
+        if (!file.isDirectory()) {
+            totalBytes += file.getLength();
+            filesByLength.merge(file.getLength(), 1, Integer::sum);
+        }
+    }
+
+    /**
+     * The files and folders the file and folder items expanded to, for saving
+     * a selection set; git items are left out as they are re-evaluated anyway
+     */
+    List<SelectionSets.ManifestEntry> getManifest(List<FileItem> items) {
+        List<SelectionSets.ManifestEntry> manifest = new ArrayList<>();
+        for (Entry entry : entries) {
+            FileItem.Kind kind = items.get(entry.item).getKind();
+            if ((kind == FileItem.Kind.FILE || kind == FileItem.Kind.DIRECTORY)
+                    && entry.file != null && entry.file.isValid()) {
+                manifest.add(new SelectionSets.ManifestEntry(entry.item, entry.relativePath, entry.file, false));
+            }
+        }
+        // Folders a filtered walk went through without writing them; files added there must invalidate the set
+        for (Entry folder : walkedFolders) {
+            if (folder.file.isValid()) {
+                manifest.add(new SelectionSets.ManifestEntry(folder.item, folder.relativePath, folder.file, true));
+            }
+        }
+        return manifest;
+    }
+
+    long getTotalBytes() {
+        return totalBytes;
+    }
+
+    int getFileCount() {
+        return fileCount;
+    }
+
+    /**
+     * Number of files written as a reference to an identical earlier file
+     */
+    int getDuplicateCount() {
+        return duplicateCount;
+    }
+
+    /**
+     * Writes all collected entries to the output
+     */
+    void write(BundleOutput out) throws IOException {
+        indicator.setIndeterminate(false);
+        startNanos = System.nanoTime();
+
+        for (Entry entry : entries) {
+            if (indicator.isCanceled()) return;
+
+            if (entry.text != null) {
+                out.append(entry.text);
+                reportProgress(entry.text.length());
+            } else if (entry.file.isDirectory()) {
+                out.append("### Folder: " + entry.relativePath + " ###\n\n");
+            } else {
+                writeFile(entry, out);
+                reportProgress(entry.file.getLength());
+            }
+            out.endSection();
+        }
+    }
+
+    private void writeFile(Entry entry, BundleOutput out) throws IOException {
+        indicator.setText("Processing " + entry.relativePath);
+
+        VirtualFile file = entry.file;
+        if (!file.isValid()) return;
+
+        // Formatted in the background when the file was selected
+        String prewarmed = prewarmer.getChunk(entry.relativePath, file);
+        long length = file.getLength();
+        boolean candidate = length > 0 && filesByLength.getOrDefault(length, 0) >= 2;
+
+        Entry original = candidate ? findIdentical(entry, prewarmed) : null;
+        if (original != null) {
+            // The same file reached through two selected items is written once
+            if (!original.relativePath.equals(entry.relativePath)) {
+                out.append("### File: " + entry.relativePath + " (identical to " + original.relativePath + ") ###\n\n");
+                duplicateCount++;
+            }
+            return;
+        }
+
+        if (prewarmed != null) {
+            out.append(prewarmed);
+            fileCount++;
+            if (candidate) remember(entry, hashChunk(prewarmed));
+            return;
+        }
+
+        out.append("### File: " + entry.relativePath + " ###\n");
+
+        if (file.getFileType().isBinary()) {
+            out.append("(binary file, content not copied)\n\n");
+            return;
+        }
+
+        // A raw transfer is not seen here, so possible duplicates are written as text and hashed on the way
+        if (!candidate && out.transferBody(file)) {
+            out.append("\n\n");
+            fileCount++;
+            return;
+        }
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            StringBuilder chunk = new StringBuilder();
+            long hash = HASH_SEED;
+            while ((line = reader.readLine()) != null) {
+                if (indicator.isCanceled()) return;
+                chunk.append(line).append("\n");
+                if (chunk.length() >= 8192) {
+                    if (candidate) hash = hash(hash, chunk, 0, chunk.length());
+                    out.append(chunk);
+                    chunk.setLength(0);
+                }
+            }
+            if (candidate) hash = hash(hash, chunk, 0, chunk.length());
+            chunk.append("\n\n");
+            out.append(chunk);
+            fileCount++;
+            if (candidate) remember(entry, hash);
+        } catch (IOException e) {
+            out.append("### Error reading " + entry.relativePath + ": " + e.getMessage() + " ###\n\n");
+        }
+    }
+
+    /**
+     * Finds an already written file of the same length whose body hash matches,
+     * confirmed byte by byte. Earlier files were hashed while they were written;
+     * this one is hashed from its prewarmed chunk, or read once if there is none.
+     */
+    private Entry findIdentical(Entry entry, String prewarmed) {
+        List<Written> sameLength = writtenByLength.get(entry.file.getLength());
+        if (sameLength == null) return null;
+
+        for (Written written : sameLength) {
+            if (written.entry.file.equals(entry.file)) return written.entry;
+        }
+        try {
+            long hash = prewarmed != null ? hashChunk(prewarmed) : hashFile(entry.file);
+            for (Written written : sameLength) {
+                if (written.hash == hash && sameBytes(written.entry.file, entry.file)) {
+                    return written.entry;
+                }
+            }
+        } catch (IOException e) {
+            // Written in full; a read error is reported there
+        }
+        return null;
+    }
+
+    /**
+     * Makes a file that was written in full an original for later identical files
+     */
+    private void remember(Entry entry, long hash) {
+        writtenByLength.computeIfAbsent(entry.file.getLength(), length -> new ArrayList<>()).add(new Written(entry, hash));
+    }
+
+    /**
+     * Hash of the lines of a chunk from {@link #formatFile}, between its heading and the closing blank line
+     */
+    private static long hashChunk(String chunk) {
+        return hash(HASH_SEED, chunk, chunk.indexOf('\n') + 1, chunk.length() - 2);
+    }
+
+    /**
+     * Hash of the lines of a file, as {@link #write} streams them
+     */
+    private static long hashFile(VirtualFile file) throws IOException {
+        long hash = HASH_SEED;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                hash = hash(hash, line, 0, line.length());
+                hash = hash(hash, "\n", 0, 1);
+            }
+        }
+        return hash;
+    }
+
+    private static long hash(long hash, CharSequence text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            hash = (hash ^ text.charAt(i)) * HASH_PRIME;
+        }
+        return hash;
+    }
+
+    private static boolean sameBytes(VirtualFile a, VirtualFile b) throws IOException {
+        if (a.equals(b)) return true;
+
+        byte[] bufferA = new byte[64 * 1024];
+        byte[] bufferB = new byte[64 * 1024];
+        try (InputStream inA = a.getInputStream(); InputStream inB = b.getInputStream()) {
+            while (true) {
+                int readA = inA.readNBytes(bufferA, 0, bufferA.length);
+                int readB = inB.readNBytes(bufferB, 0, bufferB.length);
+                if (readA != readB) return false;
+                if (readA == 0) return true;
+                if (!Arrays.equals(bufferA, 0, readA, bufferB, 0, readB)) return false;
+            }
+        }
+    }
+
+    /**
+     * Formats a whole text file section in memory, exactly as {@link #write} streams it
+     */
+    static String formatFile(String relativePath, VirtualFile file) throws IOException {
+        StringBuilder text = new StringBuilder((int) file.getLength() + relativePath.length() + 16);
+        text.append("### File: ").append(relativePath).append(" ###\n");
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                text.append(line).append("\n");
+            }
+        }
+        return text.append("\n\n").toString();
+    }
+
+    private void reportProgress(long bytes) {
+        processedBytes += bytes;
+        if (totalBytes > 0) {
+            indicator.setFraction(Math.min(1.0, (double) processedBytes / totalBytes));
+        }
+
+        double seconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+        double megabytes = processedBytes / (1024.0 * 1024.0);
+        indicator.setText2(String.format("%.1f of %.1f MB, %.1f MB/s",
+                megabytes, totalBytes / (1024.0 * 1024.0), seconds > 0 ? megabytes / seconds : 0));
+    }
+}
@@ -0,0 +1,112 @@
+package com.filecopier.plugin;
+
+import com.intellij.openapi.options.Configurable;
+import com.intellij.ui.JBIntSpinner;
+import com.intellij.ui.components.JBCheckBox;
+import com.intellij.util.ui.FormBuilder;
+import org.jetbrains.annotations.Nls;
+
+import javax.swing.*;
+
+/**
+ * Settings page for {@link FileCopierSettings}
+ */
+public class FileCopierConfigurable implements Configurable {
+    private JBIntSpinner memoryBudgetField;
+    private JBCheckBox gitHunksOnlyBox;
+    private JBIntSpinner gitContextLinesField;
+    private JBIntSpinner stackTraceContextLinesField;
+    private JBIntSpinner selectionContextLinesField;
+    private JBCheckBox splitIntoPartsBox;
+    private JBIntSpinner partLimitField;
+    private JBCheckBox partLimitInTokensBox;
+    private JBIntSpinner largeFolderWarningField;
+
+    @Override
+    public @Nls String getDisplayName() {
+        return "File Copier";
+    }
+
+    @Override
+    public JComponent createComponent() {
+        memoryBudgetField = new JBIntSpinner(64, 1, 4096);
+        gitHunksOnlyBox = new JBCheckBox("Copy only diff hunks for #changed and #staged");
+        gitContextLinesField = new JBIntSpinner(3, 0, 100);
+        stackTraceContextLinesField = new JBIntSpinner(5, 0, 100);
+        selectionContextLinesField = new JBIntSpinner(3, 0, 100);
+        splitIntoPartsBox = new JBCheckBox("Split copies into parts for size-limited chat inputs");
+        partLimitField = new JBIntSpinner(100_000, 1000, 100_000_000, 1000);
+        partLimitInTokensBox = new JBCheckBox("Count the part limit in estimated tokens instead of bytes");
+        largeFolderWarningField = new JBIntSpinner(10, 1, 4096);
+
+        JPanel panel = FormBuilder.createFormBuilder()
+                .addLabeledComponent("In-memory bundle limit (MB):", memoryBudgetField)
+                .addComponent(gitHunksOnlyBox)
+                .addLabeledComponent("Diff context lines:", gitContextLinesField)
+                .addLabeledComponent("Stack trace context lines:", stackTraceContextLinesField)
+                .addLabeledComponent("Editor selection context lines:", selectionContextLinesField)
+                .addComponent(splitIntoPartsBox)
+                .addLabeledComponent("Part limit:", partLimitField)
+                .addComponent(partLimitInTokensBox)
+                .addLabeledComponent("Flag selected folders larger than (MB):", largeFolderWarningField)
+                .addComponentFillVertically(new JPanel(), 0)
+                .getPanel();
+        reset();
+        return panel;
+    }
+
+    @Override
+    public boolean isModified() {
+        FileCopierSettings.SettingsState state = FileCopierSettings.getInstance().getState();
+        return memoryBudgetField.getNumber() != state.memoryBudgetMb
+                || gitHunksOnlyBox.isSelected() != state.gitHunksOnly
+                || gitContextLinesField.getNumber() != state.gitContextLines
+                || stackTraceContextLinesField.getNumber() != state.stackTraceContextLines
+                || selectionContextLinesField.getNumber() != state.selectionContextLines
+                || splitIntoPartsBox.isSelected() != state.splitIntoParts
+                || partLimitField.getNumber() != state.partLimit
+                || partLimitInTokensBox.isSelected() != state.partLimitInTokens
+                || largeFolderWarningField.getNumber() != state.largeFolderWarningMb;
+    }
+
+    @Override
+    public void apply() {
+        FileCopierSettings.SettingsState state = FileCopierSettings.getInstance().getState();
+        state.memoryBudgetMb = memoryBudgetField.getNumber();
+        state.gitHunksOnly = gitHunksOnlyBox.isSelected();
+        state.gitContextLines = gitContextLinesField.getNumber();
+        state.stackTraceContextLines = stackTraceContextLinesField.getNumber();
+        state.selectionContextLines = selectionContextLinesField.getNumber();
+        state.splitIntoParts = splitIntoPartsBox.isSelected();
+        state.partLimit = partLimitField.getNumber();
+        state.partLimitInTokens = partLimitInTokensBox.isSelected();
+        state.largeFolderWarningMb = largeFolderWarningField.getNumber();
+    }
+
+    @Override
+    public void reset() {
+        FileCopierSettings.SettingsState state = FileCopierSettings.getInstance().getState();
+        memoryBudgetField.setNumber(state.memoryBudgetMb);
+        gitHunksOnlyBox.setSelected(state.gitHunksOnly);
+        gitContextLinesField.setNumber(state.gitContextLines);
+        stackTraceContextLinesField.setNumber(state.stackTraceContextLines);
+        selectionContextLinesField.setNumber(state.selectionContextLines);
+        splitIntoPartsBox.setSelected(state.splitIntoParts);
+        partLimitField.setNumber(state.partLimit);
+        partLimitInTokensBox.setSelected(state.partLimitInTokens);
+        largeFolderWarningField.setNumber(state.largeFolderWarningMb);
+    }
+
+    @Override
+    public void disposeUIResources() {
+        memoryBudgetField = null;
+        gitHunksOnlyBox = null;
+        gitContextLinesField = null;
+        stackTraceContextLinesField = null;
+        selectionContextLinesField = null;
+        splitIntoPartsBox = null;
+        partLimitField = null;
+        partLimitInTokensBox = null;
+        largeFolderWarningField = null;
+    }
+}
@@ -7,8 +7,8 @@ import com.intellij.openapi.wm.ToolWindow;
 import com.intellij.openapi.wm.ToolWindowManager;
 import com.intellij.ui.content.Content;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Service for managing the file copier state and interactions
@@ -16,7 +16,6 @@ import java.util.List;
 @Service
 public final class FileCopierService {
     private final Project project;
-    private List<FileItem> selectedItems = new ArrayList<>();
 
     public FileCopierService(Project project) {
         this.project = project;
@@ -34,8 +33,8 @@ public final class FileCopierService {
      */
     public void addSelectedFile(String path) {
         FileItem item = new FileItem(path, false);
-        if (!selectedItems.contains(item)) {
-            selectedItems.add(item);
+        if (SelectionStore.getInstance(project).add(item)) {
+            BundlePrewarmer.getInstance(project).prewarm(item);
             notifySelectionChanged();
         }
     }
@@ -45,8 +44,8 @@ public final class FileCopierService {
      */
     public void addSelectedFolder(String path) {
         FileItem item = new FileItem(path, true);
-        if (!selectedItems.contains(item)) {
-            selectedItems.add(item);
+        if (SelectionStore.getInstance(project).add(item)) {
+            BundlePrewarmer.getInstance(project).prewarm(item);
             notifySelectionChanged();
         }
     }
@@ -61,24 +60,76 @@ public final class FileCopierService {
         }
     }
 
+    /**
+     * Copies the next part of the last multi-part copy to clipboard
+     */
+    public void copyNextPart() {
+        ChatPanel chatPanel = getChatPanel();
+        if (chatPanel != null) {
+            chatPanel.copyNextPart();
+        }
+    }
+
+    /**
+     * Exports all selected files to a bundle file
+     */
+    public void exportBundleToFile() {
+        ChatPanel chatPanel = getChatPanel();
+        if (chatPanel != null) {
+            chatPanel.exportBundleToFile();
+        }
+    }
+
+    /**
+     * Resolves the frames of a stack trace and adds the trace with its source
+     * windows to the selection, opening the tool window if needed
+     */
+    public void captureStackTrace(String trace) {
+        ToolWindow toolWindow = ToolWindowManager.getInstance(project).getToolWindow("FileCopier");
+        if (toolWindow == null) return;
+
+        toolWindow.activate(() -> {
+            ChatPanel chatPanel = getChatPanel();
+            if (chatPanel != null) {
+                chatPanel.captureStackTrace(trace);
+            }
+        });
+    }
+
+    /**
+     * Adds a captured editor selection to the selection, opening the tool window if needed
+     */
+    public void addSelectedSnippet(EditorSnippet snippet) {
+        ToolWindow toolWindow = ToolWindowManager.getInstance(project).getToolWindow("FileCopier");
+        if (toolWindow == null) return;
+
+        toolWindow.activate(() -> {
+            ChatPanel chatPanel = getChatPanel();
+            if (chatPanel != null) {
+                chatPanel.addSnippet(snippet.getLabel(), snippet.getContent(), "✂️");
+            }
+        });
+    }
+
     /**
      * Clears the selection
      */
     public void clearSelection() {
-        selectedItems.clear();
-        notifySelectionChanged();
-
         ChatPanel chatPanel = getChatPanel();
         if (chatPanel != null) {
+            // Clears the store and the prewarmed chunks, and reports it once in the chat
             chatPanel.clearSelection();
+            return;
         }
+        SelectionStore.getInstance(project).clear();
+        BundlePrewarmer.getInstance(project).clear();
     }
 
     /**
-     * Gets the list of selected items
+     * Gets the selected items; the list is an immutable snapshot
      */
     public List<FileItem> getSelectedItems() {
-        return new ArrayList<>(selectedItems);
+        return SelectionStore.getInstance(project).getSnapshot().getItems();
     }
 
     /**
@@ -103,7 +154,7 @@ public final class FileCopierService {
         ApplicationManager.getApplication().invokeLater(() -> {
             ChatPanel chatPanel = getChatPanel();
             if (chatPanel != null) {
-                chatPanel.updateSelectedItems(selectedItems);
+                chatPanel.updateSelectedItems(getSelectedItems());
             }
         });
     }
@@ -112,20 +163,60 @@ public final class FileCopierService {
      * Model class for selected files
      */
     public static class FileItem {
+        /**
+         * What a selected item stands for; git items are re-evaluated on every copy,
+         * snippets carry their formatted text
+         */
+        public enum Kind { FILE, DIRECTORY, GIT_CHANGED, GIT_STAGED, SNIPPET }
+
         private final String path;
-        private final boolean isDirectory;
+        private final Kind kind;
+        private final String content;
+        private final String filter;
 
         public FileItem(String path, boolean isDirectory) {
+            this(path, isDirectory ? Kind.DIRECTORY : Kind.FILE);
+        }
+
+        public FileItem(String path, Kind kind) {
+            this(path, kind, null);
+        }
+
+        public FileItem(String path, Kind kind, String content) {
+            this(path, kind, content, null);
+        }
+
+        public FileItem(String path, Kind kind, String content, String filter) {
             this.path = path;
-            this.isDirectory = isDirectory;
+            this.kind = kind;
+            this.content = content;
+            this.filter = filter;
         }
 
         public String getPath() {
             return path;
         }
 
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * The bundle text of a snippet, null for all other kinds
+         */
+        public String getContent() {
+            return content;
+        }
+
+        /**
+         * The # query a folder's files must match to be bundled, null for all files
+         */
+        public String getFilter() {
+            return filter;
+        }
+
         public boolean isDirectory() {
-            return isDirectory;
+            return kind == Kind.DIRECTORY;
         }
 
         @Override
@@ -133,12 +224,13 @@ public final class FileCopierService {
             if (this == o) return true;
             if (o == null || getClass() != o.getClass()) return false;
             FileItem fileItem = (FileItem) o;
-            return isDirectory == fileItem.isDirectory && path.equals(fileItem.path);
+            return kind == fileItem.kind && path.equals(fileItem.path) && Objects.equals(content, fileItem.content)
+                    && Objects.equals(filter, fileItem.filter);
         }
 
         @Override
         public int hashCode() {
-            return 31 * path.hashCode() + (isDirectory ? 1 : 0);
+            return Objects.hash(path, kind, content, filter);
         }
     }
-}
\ No newline at end of file
+}
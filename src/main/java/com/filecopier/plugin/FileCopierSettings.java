@@ -0,0 +1,70 @@
+package com.filecopier.plugin;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.PersistentStateComponent;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.components.State;
+import com.intellij.openapi.components.Storage;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Application-wide settings of the file copier, edited in Settings | Tools | File Copier
+ */
+@Service
+@State(name = "FileCopierSettings", storages = @Storage("fileCopier.xml"))
+public final class FileCopierSettings implements PersistentStateComponent<FileCopierSettings.SettingsState> {
+    private SettingsState state = new SettingsState();
+
+    /**
+     * Gets the application-wide settings instance
+     */
+    public static FileCopierSettings getInstance() {
+        return ApplicationManager.getApplication().getService(FileCopierSettings.class);
+    }
+
+    @Override
+    public @NotNull SettingsState getState() {
+        return state;
+    }
+
+    @Override
+    public void loadState(@NotNull SettingsState state) {
+        this.state = state;
+    }
+
+    /**
+     * Size a bundle may reach in memory before it is spilled to a temp file
+     */
+    public long getMemoryBudgetBytes() {
+        return Math.max(1, state.memoryBudgetMb) * 1024L * 1024L;
+    }
+
+    /**
+     * The memory budget as a number of chars, as Java strings take two bytes per char
+     */
+    public long getMemoryBudgetChars() {
+        return getMemoryBudgetBytes() / 2;
+    }
+
+    /**
+     * Size from which a selected folder is flagged as large
+     */
+    public long getLargeFolderWarningBytes() {
+        return Math.max(1, state.largeFolderWarningMb) * 1024L * 1024L;
+    }
+
+    /**
+     * Serialized settings; public fields are persisted by the platform
+     */
+    public static class SettingsState {
+        public int memoryBudgetMb = 64;
+        public boolean gitHunksOnly = false;
+        public int gitContextLines = 3;
+        public int stackTraceContextLines = 5;
+        public int selectionContextLines = 3;
+        public boolean splitIntoParts = false;
+        public int partLimit = 100_000;
+        public boolean partLimitInTokens = false;
+        public int largeFolderWarningMb = 10;
+    }
+}
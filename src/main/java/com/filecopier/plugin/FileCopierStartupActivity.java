@@ -0,0 +1,19 @@
+package com.filecopier.plugin;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.startup.StartupActivity;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Loads the persisted path catalog and builds the folder size and class
+ * indexes as soon as a project opens, so the first # query or stack trace
+ * capture does not have to wait for them
+ */
+public class FileCopierStartupActivity implements StartupActivity.DumbAware {
+    @Override
+    public void runActivity(@NotNull Project project) {
+        PathCatalog.getInstance(project).ensureStarted();
+        DirectorySizeIndex.getInstance(project).ensureStarted();
+        ClassFileIndex.getInstance(project).ensureStarted();
+    }
+}
@@ -19,6 +19,8 @@ public class FileCopierToolWindowFactory implements ToolWindowFactory {
         // Use ContentFactory.getInstance() instead of the deprecated SERVICE version
         ContentFactory contentFactory = ContentFactory.getInstance();
         Content content = contentFactory.createContent(fileCopierToolWindow.getContent(), "", false);
+        // Unsubscribes the panel when the tool window content goes away
+        content.setDisposer(fileCopierToolWindow.getContent());
         toolWindow.getContentManager().addContent(content);
     }
 
@@ -0,0 +1,151 @@
+package com.filecopier.plugin;
+
+import com.intellij.openapi.vfs.VirtualFile;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes a bundle straight to a file. Bodies of well-formed UTF-8 files with LF
+ * line endings are copied with {@link FileChannel#transferTo}, so only headers and
+ * files that need decoding pass through the heap. Targets ending in
+ * {@code .gz} are gzip-compressed.
+ */
+final class FileExportOutput implements BundleOutput {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final WritableByteChannel target;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    FileExportOutput(Path path) throws IOException {
+        if (path.getFileName().toString().endsWith(".gz")) {
+            OutputStream out = new GZIPOutputStream(Files.newOutputStream(path), BUFFER_SIZE);
+            target = Channels.newChannel(out);
+        } else {
+            target = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+    }
+
+    @Override
+    public void append(CharSequence text) throws IOException {
+        CharBuffer in = CharBuffer.wrap(text);
+        encoder.reset();
+        while (encoder.encode(in, buffer, true).isOverflow()) {
+            drain();
+        }
+        while (encoder.flush(buffer).isOverflow()) {
+            drain();
+        }
+    }
+
+    @Override
+    public boolean transferBody(VirtualFile file) throws IOException {
+        if (!file.isInLocalFileSystem() || file.getBOM() != null || !isUtf8(file.getCharset())) {
+            return false;
+        }
+
+        Path source = Paths.get(file.getPath());
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+            long size = in.size();
+            if (size > 0 && !isPlainUtf8(in, size)) return false;
+
+            drain();
+            long position = 0;
+            while (position < size) {
+                position += in.transferTo(position, size - position, target);
+            }
+
+            // The text path terminates every line, including the last one
+            if (size > 0 && !endsWithLineFeed(in, size)) {
+                append("\n");
+            }
+        }
+        return true;
+    }
+
+    private static boolean isUtf8(Charset charset) {
+        return StandardCharsets.UTF_8.equals(charset) || StandardCharsets.US_ASCII.equals(charset);
+    }
+
+    /**
+     * Whether the bytes are well-formed UTF-8 without any CR, so the text path
+     * would write them unchanged. Scanned through a mapping, since the detected
+     * line separator only reflects the first line break of a file.
+     */
+    private static boolean isPlainUtf8(FileChannel in, long size) throws IOException {
+        if (size > Integer.MAX_VALUE) return false;
+
+        MappedByteBuffer mapped = in.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        while (mapped.hasRemaining()) {
+            int lead = mapped.get() & 0xFF;
+            if (lead < 0x80) {
+                if (lead == '\r') return false;
+                continue;
+            }
+
+            int continuations;
+            if (lead >= 0xC2 && lead <= 0xDF) {
+                continuations = 1;
+            } else if (lead >= 0xE0 && lead <= 0xEF) {
+                continuations = 2;
+            } else if (lead >= 0xF0 && lead <= 0xF4) {
+                continuations = 3;
+            } else {
+                return false;
+            }
+            if (mapped.remaining() < continuations) return false;
+
+            // Narrower second byte ranges rule out overlong forms, surrogates and code points above U+10FFFF
+            int second = mapped.get() & 0xFF;
+            int min = lead == 0xE0 ? 0xA0 : lead == 0xF0 ? 0x90 : 0x80;
+            int max = lead == 0xED ? 0x9F : lead == 0xF4 ? 0x8F : 0xBF;
+            if (second < min || second > max) return false;
+            for (int i = 1; i < continuations; i++) {
+                if ((mapped.get() & 0xC0) != 0x80) return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean endsWithLineFeed(FileChannel in, long size) throws IOException {
+        ByteBuffer last = ByteBuffer.allocate(1);
+        in.read(last, size - 1);
+        return last.get(0) == '\n';
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            target.close();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.filecopier.plugin;
+
+import com.filecopier.plugin.FileCopierService.FileItem;
+
+/**
+ * Model class for file suggestions
+ */
+class FileSuggestion {
+    final String path;
+    final boolean isDirectory;
+    final FileItem.Kind kind;
+    // Query whose matches are taken from this folder, or null for the whole folder
+    final String filter;
+
+    FileSuggestion(String path, boolean isDirectory) {
+        this(path, isDirectory ? FileItem.Kind.DIRECTORY : FileItem.Kind.FILE);
+    }
+
+    FileSuggestion(String path, FileItem.Kind kind) {
+        this(path, kind, null);
+    }
+
+    FileSuggestion(String path, FileItem.Kind kind, String filter) {
+        this.path = path;
+        this.isDirectory = kind == FileItem.Kind.DIRECTORY;
+        this.kind = kind;
+        this.filter = filter;
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
@@ -0,0 +1,241 @@
+package com.filecopier.plugin;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.project.Project;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheIterator;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.treewalk.AbstractTreeIterator;
+import org.eclipse.jgit.treewalk.CanonicalTreeParser;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.FileTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.WorkingTreeIterator;
+import org.eclipse.jgit.treewalk.filter.IndexDiffFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Computes the files that differ from HEAD for the {@code #changed} and
+ * {@code #staged} pseudo-queries, and their diff hunks. Repositories and their
+ * index ({@link DirCache}) are cached and the index is only re-read when it
+ * changed on disk. Call off the EDT.
+ */
+@Service
+public final class GitChanges implements Disposable {
+    /**
+     * Which differences to HEAD are selected
+     */
+    enum Scope {
+        /** Working tree against HEAD, including untracked files that are not ignored */
+        CHANGED,
+        /** Index against HEAD */
+        STAGED
+    }
+
+    /**
+     * A changed path; deleted files have no content to copy
+     */
+    static final class Change {
+        final String relativePath;
+        final boolean deleted;
+
+        Change(String relativePath, boolean deleted) {
+            this.relativePath = relativePath;
+            this.deleted = deleted;
+        }
+    }
+
+    private final Project project;
+    private final Map<File, Repository> repositories = new HashMap<>();
+    private final Map<File, DirCache> dirCaches = new HashMap<>();
+
+    public GitChanges(Project project) {
+        this.project = project;
+    }
+
+    /**
+     * Gets the service instance for the specified project
+     */
+    public static GitChanges getInstance(Project project) {
+        return project.getService(GitChanges.class);
+    }
+
+    /**
+     * Lists the changed paths below the content roots, in module-prefixed form
+     */
+    List<Change> getChanges(Scope scope) throws IOException {
+        ContentRoots roots = ContentRoots.collect(project);
+        List<Change> changes = new ArrayList<>();
+        for (Repository repository : findRepositories(roots)) {
+            for (Map.Entry<String, Boolean> change : scanChanges(repository, scope).entrySet()) {
+                String relativePath = roots.getRelativePath(repository.getWorkTree().getPath() + "/" + change.getKey());
+                if (relativePath != null) {
+                    changes.add(new Change(relativePath, change.getValue()));
+                }
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Formats the diff of every changed path, keyed by module-prefixed path
+     */
+    Map<String, String> getHunks(Scope scope, int contextLines) throws IOException {
+        ContentRoots roots = ContentRoots.collect(project);
+        Map<String, String> hunks = new LinkedHashMap<>();
+        for (Repository repository : findRepositories(roots)) {
+            Map<String, Boolean> changed = scanChanges(repository, scope);
+            if (changed.isEmpty()) continue;
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (ObjectReader reader = repository.newObjectReader();
+                 DiffFormatter formatter = new DiffFormatter(out)) {
+                formatter.setRepository(repository);
+                formatter.setContext(contextLines);
+                // Only hash the paths already known to differ
+                formatter.setPathFilter(PathFilterGroup.createFromStrings(changed.keySet()));
+
+                AbstractTreeIterator newTree = scope == Scope.CHANGED
+                        ? new FileTreeIterator(repository)
+                        : new DirCacheIterator(getDirCache(repository));
+                for (DiffEntry entry : formatter.scan(headTree(repository, reader), newTree)) {
+                    out.reset();
+                    formatter.format(entry);
+                    formatter.flush();
+
+                    String path = entry.getChangeType() == DiffEntry.ChangeType.DELETE
+                            ? entry.getOldPath() : entry.getNewPath();
+                    String relativePath = roots.getRelativePath(repository.getWorkTree().getPath() + "/" + path);
+                    if (relativePath != null) {
+                        hunks.put(relativePath, out.toString(StandardCharsets.UTF_8));
+                    }
+                }
+            }
+        }
+        return hunks;
+    }
+
+    /**
+     * Walks HEAD, the cached index and, for {@link Scope#CHANGED}, the working
+     * tree; maps each differing repository path to whether it was deleted
+     */
+    private Map<String, Boolean> scanChanges(Repository repository, Scope scope) throws IOException {
+        Map<String, Boolean> changes = new LinkedHashMap<>();
+        DirCache dirCache = getDirCache(repository);
+
+        try (ObjectReader reader = repository.newObjectReader();
+             TreeWalk walk = new TreeWalk(repository, reader)) {
+            walk.setRecursive(true);
+            int head = walk.addTree(headTree(repository, reader));
+            int index = walk.addTree(new DirCacheIterator(dirCache));
+            int work = -1;
+            if (scope == Scope.CHANGED) {
+                FileTreeIterator workingTree = new FileTreeIterator(repository);
+                work = walk.addTree(workingTree);
+                workingTree.setDirCacheIterator(walk, index);
+                walk.setFilter(new IndexDiffFilter(index, work));
+            } else {
+                walk.setFilter(TreeFilter.ANY_DIFF);
+            }
+
+            while (walk.next()) {
+                AbstractTreeIterator headEntry = walk.getTree(head, AbstractTreeIterator.class);
+                DirCacheIterator indexEntry = walk.getTree(index, DirCacheIterator.class);
+                boolean staged = !sameEntry(headEntry, indexEntry);
+
+                if (work < 0) {
+                    if (staged) changes.put(walk.getPathString(), indexEntry == null);
+                    continue;
+                }
+
+                WorkingTreeIterator workEntry = walk.getTree(work, WorkingTreeIterator.class);
+                boolean unstaged;
+                if (workEntry == null) {
+                    unstaged = indexEntry != null;
+                } else if (indexEntry == null) {
+                    unstaged = !workEntry.isEntryIgnored();
+                } else {
+                    unstaged = workEntry.isModified(indexEntry.getDirCacheEntry(), true, reader);
+                }
+                if (staged || unstaged) {
+                    changes.put(walk.getPathString(), workEntry == null);
+                }
+            }
+        }
+        return changes;
+    }
+
+    private static boolean sameEntry(AbstractTreeIterator a, AbstractTreeIterator b) {
+        if (a == null || b == null) return a == b;
+        return a.getEntryRawMode() == b.getEntryRawMode() && a.getEntryObjectId().equals(b.getEntryObjectId());
+    }
+
+    private static AbstractTreeIterator headTree(Repository repository, ObjectReader reader) throws IOException {
+        ObjectId tree = repository.resolve("HEAD^{tree}");
+        if (tree == null) return new EmptyTreeIterator();
+
+        CanonicalTreeParser parser = new CanonicalTreeParser();
+        parser.reset(reader, tree);
+        return parser;
+    }
+
+    /**
+     * Gets the cached index, re-reading it only when it changed on disk
+     */
+    private synchronized DirCache getDirCache(Repository repository) throws IOException {
+        DirCache cached = dirCaches.get(repository.getDirectory());
+        if (cached == null || cached.isOutdated()) {
+            cached = repository.readDirCache();
+            dirCaches.put(repository.getDirectory(), cached);
+        }
+        return cached;
+    }
+
+    /**
+     * Finds the repositories containing the content roots, opening each once
+     */
+    private synchronized List<Repository> findRepositories(ContentRoots roots) throws IOException {
+        List<Repository> found = new ArrayList<>();
+        for (ContentRoots.Root root : roots.getRoots()) {
+            FileRepositoryBuilder builder = new FileRepositoryBuilder().findGitDir(new File(root.dir.getPath()));
+            File gitDir = builder.getGitDir();
+            if (gitDir == null) continue;
+
+            Repository repository = repositories.get(gitDir);
+            if (repository == null) {
+                repository = builder.build();
+                repositories.put(gitDir, repository);
+            }
+            if (!found.contains(repository)) {
+                found.add(repository);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public synchronized void dispose() {
+        for (Repository repository : repositories.values()) {
+            repository.close();
+        }
+        repositories.clear();
+        dirCaches.clear();
+    }
+}
@@ -0,0 +1,93 @@
+package com.filecopier.plugin;
+
+import com.intellij.openapi.application.ApplicationManager;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * List model for the suggestion dropdown that holds the pages loaded so far and
+ * pulls the next page from a background source once the user scrolls or moves
+ * the selection close to its end. Paging is driven by the view through
+ * {@link #loadMoreNear}, never by {@link #getElementAt}, which list layout
+ * calls for every row. Use on the EDT.
+ */
+final class LazySuggestionModel extends AbstractListModel<FileSuggestion> {
+    static final int PAGE_SIZE = 30;
+    // Rows from the end at which the next page is requested
+    private static final int PREFETCH_MARGIN = 5;
+
+    /**
+     * Produces further results after the first page; called on a pooled thread,
+     * one page at a time
+     */
+    interface PageSource {
+        List<FileSuggestion> nextPage(int pageSize);
+    }
+
+    private final List<FileSuggestion> loaded = new ArrayList<>();
+    private PageSource source;
+    private boolean loading = false;
+    // Bumped on every reset so pages of an older query are dropped
+    private int generation = 0;
+
+    /**
+     * Replaces the content with the first page; source is null when there are no more pages
+     */
+    void reset(List<FileSuggestion> firstPage, PageSource source) {
+        int oldSize = loaded.size();
+        loaded.clear();
+        if (oldSize > 0) fireIntervalRemoved(this, 0, oldSize - 1);
+
+        loaded.addAll(firstPage);
+        this.source = firstPage.size() < PAGE_SIZE ? null : source;
+        this.loading = false;
+        generation++;
+        if (!loaded.isEmpty()) fireIntervalAdded(this, 0, loaded.size() - 1);
+    }
+
+    @Override
+    public int getSize() {
+        return loaded.size();
+    }
+
+    @Override
+    public FileSuggestion getElementAt(int index) {
+        return loaded.get(index);
+    }
+
+    /**
+     * Requests the next page if the row, e.g. the last visible or the selected
+     * one, is close to the end of the loaded rows
+     */
+    void loadMoreNear(int index) {
+        if (source == null || loading || index < 0 || index < loaded.size() - PREFETCH_MARGIN) return;
+        loading = true;
+
+        PageSource pageSource = source;
+        int requested = generation;
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            List<FileSuggestion> page = null;
+            try {
+                page = pageSource.nextPage(PAGE_SIZE);
+            } finally {
+                // A page that failed to load ends paging instead of leaving the model loading forever
+                List<FileSuggestion> result = page != null ? page : List.of();
+                SwingUtilities.invokeLater(() -> appendPage(requested, result));
+            }
+        });
+    }
+
+    private void appendPage(int requested, List<FileSuggestion> page) {
+        if (requested != generation) return;
+
+        loading = false;
+        if (page.size() < PAGE_SIZE) source = null;
+        if (page.isEmpty()) return;
+
+        int first = loaded.size();
+        loaded.addAll(page);
+        fireIntervalAdded(this, first, loaded.size() - 1);
+    }
+}
@@ -0,0 +1,246 @@
+package com.filecopier.plugin;
+
+import com.intellij.openapi.util.io.FileUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Splits a bundle into parts that each stay under a size limit, in the same
+ * pass that writes it. Parts end at section boundaries (a file, folder or
+ * diff); a section that does not fit into an empty part is split at line
+ * boundaries while it is appended, so it is never buffered whole, and a single
+ * line longer than the limit is cut. The limit counts
+ * UTF-8 bytes, or estimated tokens at four characters per token.
+ * <p>
+ * Finished parts are kept in memory up to the memory budget, like
+ * {@link BundleSink}; later parts are appended to a temp file and read back
+ * one at a time when they are copied.
+ */
+final class MultiPartOutput implements BundleOutput {
+    private static final Logger LOGGER = Logger.getLogger(MultiPartOutput.class.getName());
+    static final int CHARS_PER_TOKEN = 4;
+    // Room for the "### Part k of n ###" heading added when a part is copied
+    private static final int HEADING_RESERVE = 32;
+
+    private final long limit;
+    private final boolean countTokens;
+    private final long memoryBudgetChars;
+    private final List<String> parts = new ArrayList<>();
+    private final StringBuilder part = new StringBuilder();
+    private final StringBuilder section = new StringBuilder();
+    private long sectionSize = 0;
+    // Whether the current section outgrew a part and its lines go to parts as they are appended
+    private boolean splitting = false;
+    private long partSize = 0;
+    private long memoryChars = 0;
+    // Parts beyond the memory budget, as UTF-8 byte ranges of the spill file
+    private final List<long[]> spilledParts = new ArrayList<>();
+    private File spillFile;
+    private FileChannel channel;
+
+    MultiPartOutput(long limit, boolean countTokens, long memoryBudgetChars) {
+        this.limit = Math.max(1, limit - (countTokens ? HEADING_RESERVE / CHARS_PER_TOKEN : HEADING_RESERVE));
+        this.countTokens = countTokens;
+        this.memoryBudgetChars = memoryBudgetChars;
+    }
+
+    @Override
+    public void append(CharSequence text) throws IOException {
+        section.append(text);
+        // Token estimates round up, so they are not additive across appends
+        sectionSize = countTokens ? sizeOf(section, 0, section.length()) : sectionSize + sizeOf(text, 0, text.length());
+        if (sectionSize <= limit) return;
+
+        if (!splitting && part.length() > 0) {
+            closePart();
+        }
+        splitting = true;
+        splitLines(false);
+    }
+
+    @Override
+    public void endSection() throws IOException {
+        if (splitting) {
+            splitLines(true);
+            splitting = false;
+        } else if (section.length() > 0) {
+            if (partSize + sectionSize > limit && part.length() > 0) {
+                closePart();
+            }
+            part.append(section);
+            partSize += sectionSize;
+        }
+        section.setLength(0);
+        sectionSize = 0;
+    }
+
+    /**
+     * Moves the complete lines of a section that is larger than a whole part into
+     * parts; the last, unterminated line stays buffered unless this is the end of
+     * the section or it alone exceeds the limit
+     */
+    private void splitLines(boolean endOfSection) throws IOException {
+        int lineStart = 0;
+        while (lineStart < section.length()) {
+            int lineEnd = section.indexOf("\n", lineStart);
+            if (lineEnd < 0 && !endOfSection) {
+                if (sizeOf(section, lineStart, section.length()) <= limit) break;
+                // Cut the long line so far, keeping a high surrogate with the low one still to come
+                lineEnd = section.length();
+                if (Character.isHighSurrogate(section.charAt(lineEnd - 1)) && lineEnd - 1 > lineStart) lineEnd--;
+            } else {
+                lineEnd = lineEnd < 0 ? section.length() : lineEnd + 1;
+            }
+
+            long lineSize = sizeOf(section, lineStart, lineEnd);
+            if (partSize + lineSize > limit && part.length() > 0) {
+                closePart();
+            }
+            if (lineSize <= limit) {
+                part.append(section, lineStart, lineEnd);
+                partSize += lineSize;
+            } else {
+                cutLine(lineStart, lineEnd);
+            }
+            lineStart = lineEnd;
+        }
+        section.delete(0, lineStart);
+        sectionSize = sizeOf(section, 0, section.length());
+    }
+
+    private void cutLine(int start, int end) throws IOException {
+        int pieceStart = start;
+        while (pieceStart < end) {
+            int pieceEnd = pieceStart;
+            if (countTokens) {
+                pieceEnd = (int) Math.min(end, pieceStart + limit * CHARS_PER_TOKEN);
+            } else {
+                long pieceSize = 0;
+                while (pieceEnd < end) {
+                    long charSize = sizeOf(section, pieceEnd, pieceEnd + 1);
+                    if (pieceSize + charSize > limit && pieceEnd > pieceStart) break;
+                    pieceSize += charSize;
+                    pieceEnd++;
+                }
+            }
+            // Never separate a surrogate pair
+            if (pieceEnd < end && pieceEnd > pieceStart + 1 && Character.isHighSurrogate(section.charAt(pieceEnd - 1))) {
+                pieceEnd--;
+            }
+            part.append(section, pieceStart, pieceEnd);
+            partSize += sizeOf(section, pieceStart, pieceEnd);
+            closePart();
+            pieceStart = pieceEnd;
+        }
+    }
+
+    private void closePart() throws IOException {
+        if (part.length() == 0) return;
+        if (channel == null && memoryChars + part.length() <= memoryBudgetChars) {
+            parts.add(part.toString());
+            memoryChars += part.length();
+        } else {
+            spillPart();
+        }
+        part.setLength(0);
+        partSize = 0;
+    }
+
+    private void spillPart() throws IOException {
+        if (channel == null) {
+            spillFile = FileUtil.createTempFile("filecopier-parts", ".txt", true);
+            channel = FileChannel.open(spillFile.toPath(), StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+        long offset = channel.position();
+        ByteBuffer bytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(part));
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        spilledParts.add(new long[]{offset, channel.position() - offset});
+    }
+
+    private long sizeOf(CharSequence text, int start, int end) {
+        if (countTokens) {
+            return (end - start + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+        }
+
+        long bytes = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes += 1;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                // The pair encodes to four bytes, counted on the high surrogate
+                bytes += 4;
+            } else if (!Character.isLowSurrogate(c)) {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    int getPartCount() {
+        return parts.size() + spilledParts.size();
+    }
+
+    boolean isSpilled() {
+        return spillFile != null;
+    }
+
+    /**
+     * The part with the 0-based index, headed with its position; parts beyond
+     * the memory budget are read back from the spill file
+     */
+    String getPart(int index) throws IOException {
+        String heading = "### Part " + (index + 1) + " of " + getPartCount() + " ###\n";
+        if (index < parts.size()) {
+            return heading + parts.get(index);
+        }
+
+        long[] range = spilledParts.get(index - parts.size());
+        ByteBuffer bytes = ByteBuffer.allocate((int) range[1]);
+        try (FileChannel in = FileChannel.open(spillFile.toPath(), StandardOpenOption.READ)) {
+            while (bytes.hasRemaining()) {
+                if (in.read(bytes, range[0] + bytes.position()) < 0) break;
+            }
+        }
+        bytes.flip();
+        return heading + StandardCharsets.UTF_8.decode(bytes);
+    }
+
+    @Override
+    public void close() throws IOException {
+        endSection();
+        closePart();
+        if (channel != null && channel.isOpen()) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Deletes the spill file once the parts are no longer needed
+     */
+    void discard() {
+        try {
+            if (channel != null && channel.isOpen()) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            LOGGER.fine("Failed to close discarded parts: " + e.getMessage());
+        }
+        if (spillFile != null) {
+            FileUtil.delete(spillFile);
+        }
+    }
+}
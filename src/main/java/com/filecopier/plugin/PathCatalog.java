@@ -0,0 +1,635 @@
+package com.filecopier.plugin;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ModuleRootEvent;
+import com.intellij.openapi.roots.ModuleRootListener;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileCopyEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileCreateEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileDeleteEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+/**
+ * Catalog of every path below the project content roots with its directory and
+ * ignore status, used to answer # queries without walking the VFS. The catalog is persisted to a compact
+ * binary file in the IDE system directory and read back on startup, then
+ * kept current from VFS events.
+ * <p>
+ * Every catalogued folder carries the timestamp and child count it had when its
+ * children were listed. On startup, only folders whose stamp no longer matches
+ * are listed again, so changes made while the IDE was closed are patched in
+ * without walking the unchanged parts of the tree.
+ */
+@Service
+public final class PathCatalog implements Disposable {
+    private static final Logger LOGGER = Logger.getLogger(PathCatalog.class.getName());
+    private static final int MAGIC = 0x46435043;
+    private static final int VERSION = 3;
+    private static final byte FLAG_DIRECTORY = 1;
+    private static final byte FLAG_IGNORED = 2;
+    private static final long DISPOSE_TIMEOUT_SECONDS = 5;
+
+    /**
+     * Timestamp and child count of a folder when its children were catalogued
+     */
+    private static final class DirectoryStamp {
+        final long timeStamp;
+        final int childCount;
+
+        DirectoryStamp(long timeStamp, int childCount) {
+            this.timeStamp = timeStamp;
+            this.childCount = childCount;
+        }
+
+        static DirectoryStamp of(VirtualFile dir) {
+            return ReadAction.compute(() -> new DirectoryStamp(dir.getTimeStamp(), dir.getChildren().length));
+        }
+
+        boolean matches(VirtualFile dir) {
+            return ReadAction.compute(() -> dir.isValid() && dir.getTimeStamp() == timeStamp
+                    && dir.getChildren().length == childCount);
+        }
+    }
+
+    private final Project project;
+    private final ConcurrentSkipListMap<String, Byte> entries = new ConcurrentSkipListMap<>();
+    // Stamps of the roots and of every non-ignored catalogued folder, by module-prefixed path
+    private final ConcurrentSkipListMap<String, DirectoryStamp> directoryStamps = new ConcurrentSkipListMap<>();
+    private final CountDownLatch loaded = new CountDownLatch(1);
+    private final QueryResultCache queryCache = new QueryResultCache(64);
+    private final ExecutorService catalogExecutor =
+            AppExecutorUtil.createBoundedApplicationPoolExecutor("FileCopier Path Catalog", 1);
+    private volatile ContentRoots roots;
+    private volatile boolean dirty = false;
+    private final AtomicBoolean reconcileQueued = new AtomicBoolean();
+    private boolean started = false;
+
+    public PathCatalog(Project project) {
+        this.project = project;
+
+        project.getMessageBus().connect(this).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+            @Override
+            public void after(@NotNull List<? extends VFileEvent> events) {
+                handleVfsEvents(events);
+            }
+        });
+        project.getMessageBus().connect(this).subscribe(ModuleRootListener.TOPIC, new ModuleRootListener() {
+            @Override
+            public void rootsChanged(@NotNull ModuleRootEvent event) {
+                if (isStarted()) {
+                    requestReconcile();
+                }
+            }
+        });
+    }
+
+    /**
+     * Gets the catalog instance for the specified project
+     */
+    public static PathCatalog getInstance(Project project) {
+        return project.getService(PathCatalog.class);
+    }
+
+    /**
+     * Loads or builds the catalog in the background, if not already started
+     */
+    public synchronized void ensureStarted() {
+        if (started) return;
+        started = true;
+        catalogExecutor.execute(this::loadOrBuild);
+    }
+
+    /**
+     * Finds the best-ranked non-ignored paths matching the query, see {@link PathQuery}.
+     * Matches are streamed from the sorted catalog and merged by rank, so only
+     * the requested page is materialized; repeated queries are served from the
+     * query cache. Blocks until the catalog has been loaded, so call it off the EDT.
+     */
+    public List<FileSuggestion> search(String query, int limit) {
+        ensureStarted();
+        awaitLoaded();
+
+        List<FileSuggestion> cached = queryCache.get(query, limit);
+        if (cached != null) return cached;
+
+        ContentRoots current = roots;
+        if (current == null) return new ArrayList<>();
+
+        long generation = queryCache.getGeneration();
+        List<FileSuggestion> ranked = rankAll(current, query).next(limit);
+        queryCache.put(query, limit, ranked, generation);
+        return ranked;
+    }
+
+    /**
+     * Opens a cursor over all results of the query in rank order, for paging
+     * beyond the first page returned by {@link #search}
+     */
+    SuggestionRanker.RankedCursor openCursor(String query) {
+        ensureStarted();
+        awaitLoaded();
+
+        ContentRoots current = roots;
+        if (current == null) return new SuggestionRanker.RankedCursor(new ArrayList<>());
+        return rankAll(current, query);
+    }
+
+    private SuggestionRanker.RankedCursor rankAll(ContentRoots current, String query) {
+        PathQuery compiled = PathQuery.compile(query);
+        List<Iterator<FileSuggestion>> streams = new ArrayList<>();
+        for (ContentRoots.Root root : current.getRoots()) {
+            for (Map<String, Byte> candidates : candidateRanges(root.name, compiled)) {
+                // Folders rank before files, so each range is streamed once for each
+                streams.add(streamMatches(candidates, compiled, true));
+                streams.add(streamMatches(candidates, compiled, false));
+            }
+        }
+        return new SuggestionRanker.RankedCursor(streams);
+    }
+
+    /**
+     * Lazily yields the non-ignored folders or files of a catalog range that match,
+     * in catalog order, which is the rank order within each kind
+     */
+    private static Iterator<FileSuggestion> streamMatches(Map<String, Byte> candidates, PathQuery query,
+                                                          boolean directories) {
+        return candidates.entrySet().stream()
+                .filter(entry -> (entry.getValue() & FLAG_IGNORED) == 0
+                        && ((entry.getValue() & FLAG_DIRECTORY) != 0) == directories
+                        && query.matches(entry.getKey(), directories))
+                .map(entry -> new FileSuggestion(entry.getKey(), directories))
+                .iterator();
+    }
+
+    /**
+     * The parts of the catalog that can hold matches; a query with a literal
+     * directory prefix only scans the subtrees below that prefix
+     */
+    private List<Map<String, Byte>> candidateRanges(String rootName, PathQuery query) {
+        String prefix = query.getPrefix();
+        if (prefix == null) return List.of(subtree(rootName));
+
+        String inRoot = rootName + "/" + prefix;
+        if (!prefix.startsWith(rootName + "/")) {
+            return List.of(entries.subMap(inRoot, inRoot + "\uFFFF"));
+        }
+        // The prefix may also name the root itself
+        return List.of(entries.subMap(inRoot, inRoot + "\uFFFF"), entries.subMap(prefix, prefix + "\uFFFF"));
+    }
+
+    private Map<String, Byte> subtree(String relativePath) {
+        return entries.subMap(relativePath + "/", relativePath + "/\uFFFF");
+    }
+
+    private void awaitLoaded() {
+        try {
+            loaded.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private synchronized boolean isStarted() {
+        return started;
+    }
+
+    private void loadOrBuild() {
+        try {
+            roots = ContentRoots.collect(project);
+            boolean restored = readCatalog(roots);
+            if (!restored) {
+                entries.putAll(walk(roots, roots.getRoots(), directoryStamps));
+                dirty = true;
+            }
+            loaded.countDown();
+
+            if (restored) {
+                patchChangedDirectories(roots);
+            }
+            if (dirty) {
+                writeCatalog(roots);
+            }
+        } finally {
+            loaded.countDown();
+        }
+    }
+
+    /**
+     * Lists again every catalogued folder whose stamp differs from the VFS and
+     * patches its children. Parents are checked before their children, and
+     * folders added by a patch are walked and stamped right away.
+     */
+    private void patchChangedDirectories(ContentRoots contentRoots) {
+        int patched = 0;
+        for (String relativePath : new ArrayList<>(directoryStamps.keySet())) {
+            DirectoryStamp stamp = directoryStamps.get(relativePath);
+            // Removed with an ancestor that was patched before
+            if (stamp == null) continue;
+
+            VirtualFile dir = contentRoots.resolve(relativePath);
+            if (dir == null || !dir.isValid() || !dir.isDirectory()) {
+                removeSubtree(relativePath);
+                patched++;
+            } else if (!stamp.matches(dir)) {
+                patchChildren(contentRoots, relativePath, dir);
+                patched++;
+            }
+        }
+        LOGGER.fine("Patched " + patched + " of " + directoryStamps.size() + " catalogued folders");
+    }
+
+    /**
+     * Brings the direct children of a folder in line with the VFS
+     */
+    private void patchChildren(ContentRoots contentRoots, String relativePath, VirtualFile dir) {
+        // Stamped before listing, so a change made meanwhile is caught next time
+        DirectoryStamp stamp = DirectoryStamp.of(dir);
+        Map<String, Byte> listedFlags = new HashMap<>();
+        Map<String, VirtualFile> listedFiles = new HashMap<>();
+        contentRoots.walk(dir, (childPath, child, ignored) -> {
+            listedFlags.put(childPath, flagsOf(child.isDirectory(), ignored));
+            listedFiles.put(childPath, child);
+            return false;
+        });
+
+        for (String child : directChildren(relativePath)) {
+            if (!listedFlags.containsKey(child)) removeSubtree(child);
+        }
+        for (Map.Entry<String, Byte> listed : listedFlags.entrySet()) {
+            if (!listed.getValue().equals(entries.get(listed.getKey()))) {
+                removeSubtree(listed.getKey());
+                addSubtree(contentRoots, listedFiles.get(listed.getKey()));
+            }
+        }
+        directoryStamps.put(relativePath, stamp);
+    }
+
+    /**
+     * The catalogued paths directly below a folder, skipping over their subtrees
+     */
+    private Set<String> directChildren(String relativePath) {
+        Set<String> children = new LinkedHashSet<>();
+        String prefix = relativePath + "/";
+        String key = entries.ceilingKey(prefix);
+        while (key != null && key.startsWith(prefix)) {
+            int slash = key.indexOf('/', prefix.length());
+            if (slash < 0) {
+                children.add(key);
+                key = entries.higherKey(key);
+            } else {
+                String child = key.substring(0, slash);
+                children.add(child);
+                key = entries.higherKey(child + "/\uFFFF");
+            }
+        }
+        return children;
+    }
+
+    /**
+     * Queues a reconcile, unless one is already queued and has not started yet;
+     * a burst of root changes, as during a project sync, then costs one reconcile
+     */
+    private void requestReconcile() {
+        if (reconcileQueued.compareAndSet(false, true)) {
+            catalogExecutor.execute(() -> {
+                reconcileQueued.set(false);
+                reconcile();
+            });
+        }
+    }
+
+    /**
+     * Re-collects the content roots and patches the catalog to match. Only roots
+     * that were added or walk differently are walked; entries of removed roots
+     * are dropped.
+     */
+    private void reconcile() {
+        ContentRoots previous = roots;
+        ContentRoots current = ContentRoots.collect(project);
+        List<ContentRoots.Root> added = current.getAddedRoots(previous);
+        if (added == null) {
+            rewalk(current);
+            return;
+        }
+
+        roots = current;
+        List<ContentRoots.Root> removed = current.getRemovedRoots(previous);
+        for (ContentRoots.Root root : removed) {
+            removeSubtree(root.name);
+        }
+        if (!added.isEmpty()) {
+            entries.putAll(walk(current, added, directoryStamps));
+        }
+        if (!added.isEmpty() || !removed.isEmpty()) {
+            dirty = true;
+            queryCache.clear();
+        }
+    }
+
+    /**
+     * Re-walks all roots and patches the catalog to match
+     */
+    private void rewalk(ContentRoots current) {
+        roots = current;
+        Map<String, DirectoryStamp> stamps = new ConcurrentHashMap<>();
+        Map<String, Byte> walked = walk(current, current.getRoots(), stamps);
+
+        boolean changed = entries.keySet().removeIf(path -> !walked.containsKey(path));
+        for (Map.Entry<String, Byte> entry : walked.entrySet()) {
+            Byte previous = entries.put(entry.getKey(), entry.getValue());
+            if (!entry.getValue().equals(previous)) {
+                changed = true;
+            }
+        }
+        directoryStamps.keySet().retainAll(stamps.keySet());
+        directoryStamps.putAll(stamps);
+        dirty = true;
+        if (changed) {
+            queryCache.clear();
+        }
+    }
+
+    /**
+     * Walks the roots, stamping each root and non-ignored folder before its children are listed
+     */
+    private Map<String, Byte> walk(ContentRoots contentRoots, List<ContentRoots.Root> selected,
+                                   Map<String, DirectoryStamp> stamps) {
+        Map<String, Byte> walked = new ConcurrentHashMap<>();
+        for (ContentRoots.Root root : selected) {
+            stamps.put(root.name, DirectoryStamp.of(root.dir));
+        }
+        contentRoots.walkRoots(selected, (relativePath, file, ignored) -> {
+            walked.put(relativePath, flagsOf(file.isDirectory(), ignored));
+            if (file.isDirectory() && !ignored) {
+                stamps.put(relativePath, DirectoryStamp.of(file));
+            }
+            return !ignored;
+        });
+        return walked;
+    }
+
+    private static byte flagsOf(boolean isDirectory, boolean ignored) {
+        return (byte) ((isDirectory ? FLAG_DIRECTORY : 0) | (ignored ? FLAG_IGNORED : 0));
+    }
+
+    private void handleVfsEvents(List<? extends VFileEvent> events) {
+        if (!isStarted()) return;
+
+        List<String> removedPaths = new ArrayList<>();
+        List<VirtualFile> addedFiles = new ArrayList<>();
+        boolean ignoreRulesChanged = false;
+
+        for (VFileEvent event : events) {
+            if (event.getPath().endsWith("/.gitignore")) {
+                ignoreRulesChanged = true;
+            }
+            if (event instanceof VFileDeleteEvent) {
+                removedPaths.add(event.getPath());
+            } else if (event instanceof VFileMoveEvent) {
+                removedPaths.add(((VFileMoveEvent) event).getOldPath());
+                addedFiles.add(event.getFile());
+            } else if (event instanceof VFilePropertyChangeEvent && ((VFilePropertyChangeEvent) event).isRename()) {
+                removedPaths.add(((VFilePropertyChangeEvent) event).getOldPath());
+                addedFiles.add(event.getFile());
+            } else if (event instanceof VFileCreateEvent) {
+                addedFiles.add(event.getFile());
+            } else if (event instanceof VFileCopyEvent) {
+                addedFiles.add(((VFileCopyEvent) event).findCreatedFile());
+            }
+        }
+        if (removedPaths.isEmpty() && addedFiles.isEmpty() && !ignoreRulesChanged) return;
+
+        // Stamped now, while the VFS reflects exactly this batch: a later batch that
+        // is dropped at shutdown then leaves its folders stamped as changed
+        Map<String, DirectoryStamp> parentStamps = stampParents(removedPaths, addedFiles);
+        catalogExecutor.execute(() -> {
+            ContentRoots current = roots;
+            if (current == null) return;
+
+            for (String removed : removedPaths) {
+                String relativePath = current.getRelativePath(removed);
+                if (relativePath != null) removeSubtree(relativePath);
+            }
+            for (VirtualFile added : addedFiles) {
+                if (added != null && added.isValid()) addSubtree(current, added);
+            }
+            parentStamps.forEach((relativePath, stamp) -> directoryStamps.computeIfPresent(relativePath, (path, old) -> stamp));
+        });
+        if (ignoreRulesChanged) {
+            // Walks the roots whose .gitignore changed again, after this batch
+            requestReconcile();
+        }
+    }
+
+    /**
+     * Stamps the folders that the removed and added paths are direct children of
+     */
+    private Map<String, DirectoryStamp> stampParents(List<String> removedPaths, List<VirtualFile> addedFiles) {
+        Map<String, DirectoryStamp> stamps = new HashMap<>();
+        ContentRoots current = roots;
+        if (current == null) return stamps;
+
+        List<String> changedPaths = new ArrayList<>(removedPaths);
+        for (VirtualFile added : addedFiles) {
+            if (added != null) changedPaths.add(added.getPath());
+        }
+        for (String changedPath : changedPaths) {
+            String relativePath = current.getRelativePath(changedPath);
+            int slash = relativePath != null ? relativePath.lastIndexOf('/') : -1;
+            if (slash < 0) continue;
+
+            String parentPath = relativePath.substring(0, slash);
+            if (stamps.containsKey(parentPath)) continue;
+            VirtualFile parent = current.resolve(parentPath);
+            if (parent != null && parent.isValid()) {
+                stamps.put(parentPath, DirectoryStamp.of(parent));
+            }
+        }
+        return stamps;
+    }
+
+    private void removeSubtree(String relativePath) {
+        Map<String, Byte> subtree = subtree(relativePath);
+        List<String> removed = new ArrayList<>(subtree.keySet());
+        if (entries.remove(relativePath) != null) {
+            removed.add(relativePath);
+        }
+        subtree.clear();
+        directoryStamps.remove(relativePath);
+        directoryStamps.subMap(relativePath + "/", relativePath + "/\uFFFF").clear();
+
+        if (!removed.isEmpty()) {
+            dirty = true;
+            queryCache.invalidate(removed);
+        }
+    }
+
+    private void addSubtree(ContentRoots contentRoots, VirtualFile file) {
+        String relativePath = contentRoots.getRelativePath(file);
+        if (relativePath == null || isUnderIgnoredDirectory(relativePath) || contentRoots.isExcluded(file)) return;
+
+        List<String> added = new ArrayList<>();
+        boolean ignored = contentRoots.isIgnored(file);
+        entries.put(relativePath, flagsOf(file.isDirectory(), ignored));
+        added.add(relativePath);
+        if (file.isDirectory() && !ignored) {
+            directoryStamps.put(relativePath, DirectoryStamp.of(file));
+            contentRoots.walk(file, (childPath, child, childIgnored) -> {
+                entries.put(childPath, flagsOf(child.isDirectory(), childIgnored));
+                added.add(childPath);
+                if (child.isDirectory() && !childIgnored) {
+                    directoryStamps.put(childPath, DirectoryStamp.of(child));
+                }
+                return !childIgnored;
+            });
+        }
+        dirty = true;
+        queryCache.invalidate(added);
+    }
+
+    private boolean isUnderIgnoredDirectory(String relativePath) {
+        int slash = relativePath.lastIndexOf('/');
+        while (slash > 0) {
+            Byte flags = entries.get(relativePath.substring(0, slash));
+            if (flags != null && (flags & FLAG_IGNORED) != 0) return true;
+            slash = relativePath.lastIndexOf('/', slash - 1);
+        }
+        return false;
+    }
+
+    private Path getCatalogPath() {
+        return Paths.get(PathManager.getSystemPath(), "filecopier", project.getLocationHash() + ".catalog");
+    }
+
+    /**
+     * Reads the persisted catalog with its folder stamps. The catalog is discarded
+     * when the content roots, their excluded folders or their .gitignore files
+     * changed since it was written; otherwise it is used right away and patched
+     * through the folder stamps in the background.
+     */
+    private boolean readCatalog(ContentRoots contentRoots) {
+        Path path = getCatalogPath();
+        if (!Files.exists(path)) return false;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return false;
+            if (!readString(in).equals(contentRoots.getSignature())) return false;
+
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                byte flags = in.readByte();
+                entries.put(readString(in), flags);
+            }
+            int stampCount = in.readInt();
+            for (int i = 0; i < stampCount; i++) {
+                String relativePath = readString(in);
+                directoryStamps.put(relativePath, new DirectoryStamp(in.readLong(), in.readInt()));
+            }
+            return true;
+        } catch (IOException e) {
+            LOGGER.warning("Discarding unreadable path catalog: " + e.getMessage());
+            entries.clear();
+            directoryStamps.clear();
+            return false;
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the catalog; only called from the catalog executor or once it has terminated
+     */
+    private void writeCatalog(ContentRoots contentRoots) {
+        Path path = getCatalogPath();
+        Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(path.getParent());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                writeString(out, contentRoots.getSignature());
+                out.writeInt(entries.size());
+                for (Map.Entry<String, Byte> entry : entries.entrySet()) {
+                    out.writeByte(entry.getValue());
+                    writeString(out, entry.getKey());
+                }
+                out.writeInt(directoryStamps.size());
+                for (Map.Entry<String, DirectoryStamp> entry : directoryStamps.entrySet()) {
+                    writeString(out, entry.getKey());
+                    out.writeLong(entry.getValue().timeStamp);
+                    out.writeInt(entry.getValue().childCount);
+                }
+            }
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+        } catch (IOException e) {
+            LOGGER.warning("Failed to write path catalog: " + e.getMessage());
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    @Override
+    public void dispose() {
+        // Queued batches are dropped; the folder stamps they would have updated
+        // stay outdated, so the next start patches those folders
+        catalogExecutor.shutdownNow();
+        try {
+            if (!catalogExecutor.awaitTermination(DISPOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                LOGGER.info("Path catalog still busy at shutdown; keeping the previously written catalog");
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        ContentRoots current = roots;
+        if (dirty && current != null && loaded.getCount() == 0) {
+            writeCatalog(current);
+        }
+    }
+}
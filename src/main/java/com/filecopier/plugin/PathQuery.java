@@ -0,0 +1,189 @@
+package com.filecopier.plugin;
+
+import com.intellij.openapi.util.text.StringUtil;
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A # query compiled once into a path matcher. Plain substrings match the
+ * path below the content root, so a module name does not match every file of
+ * its module; the module prefix is only shown. Besides plain substrings it
+ * understands {@code ext:sql} (extension), {@code re:Test.*IT} (regular
+ * expression found anywhere in the path) and globs such as
+ * {@code src/**}{@code /*.java}. Globs without a slash match file names,
+ * others match the path below the content root or the module-prefixed path;
+ * their literal leading directories form a prefix that prunes whole subtrees.
+ */
+final class PathQuery {
+    private enum Type { PLAIN, EXTENSION, GLOB, REGEX }
+
+    private final String text;
+    private final Type type;
+    private final String needle;
+    private final Pattern pattern;
+    private final boolean matchName;
+    private final String prefix;
+
+    private PathQuery(String text, Type type, String needle, Pattern pattern, boolean matchName, String prefix) {
+        this.text = text;
+        this.type = type;
+        this.needle = needle;
+        this.pattern = pattern;
+        this.matchName = matchName;
+        this.prefix = prefix;
+    }
+
+    /**
+     * Compiles the query text; an invalid regular expression matches nothing
+     */
+    static PathQuery compile(String text) {
+        if (text.startsWith("ext:") && text.length() > 4) {
+            String extension = StringUtil.trimStart(text.substring(4), ".").toLowerCase();
+            return new PathQuery(text, Type.EXTENSION, "." + extension, null, false, null);
+        }
+        if (text.startsWith("re:") && text.length() > 3) {
+            Pattern pattern;
+            try {
+                pattern = Pattern.compile(text.substring(3));
+            } catch (PatternSyntaxException e) {
+                pattern = null;
+            }
+            return new PathQuery(text, Type.REGEX, null, pattern, false, null);
+        }
+
+        int wildcard = indexOfWildcard(text);
+        if (wildcard >= 0) {
+            boolean matchName = text.indexOf('/') < 0;
+            String literal = text.substring(0, wildcard);
+            String prefix = matchName ? null : literal.substring(0, literal.lastIndexOf('/') + 1);
+            return new PathQuery(text, Type.GLOB, null, Pattern.compile(globToRegex(text)), matchName,
+                    prefix == null || prefix.isEmpty() ? null : prefix);
+        }
+        return new PathQuery(text, Type.PLAIN, text, null, false, null);
+    }
+
+    /**
+     * Whether this is a plain substring query, which matches folders as a whole
+     */
+    boolean isPlain() {
+        return type == Type.PLAIN;
+    }
+
+    String getText() {
+        return text;
+    }
+
+    /**
+     * Literal directories every match starts with below its content root, e.g.
+     * {@code src/main/} for {@code src/main/**}; null if there are none
+     */
+    String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * Whether the module-prefixed path matches
+     */
+    boolean matches(String path, boolean isDirectory) {
+        switch (type) {
+            case PLAIN:
+                return StringUtil.indexOfIgnoreCase(pathInRoot(path), needle, 0) >= 0;
+            case EXTENSION:
+                return !isDirectory && path.regionMatches(true, path.length() - needle.length(), needle, 0, needle.length());
+            case REGEX:
+                return pattern != null && pattern.matcher(path).find();
+            default:
+                if (matchName) {
+                    return pattern.matcher(path.substring(path.lastIndexOf('/') + 1)).matches();
+                }
+                return pattern.matcher(pathInRoot(path)).matches() || pattern.matcher(path).matches();
+        }
+    }
+
+    /**
+     * Whether the folder can contain matches; false lets a walk skip its subtree
+     */
+    boolean mayContain(String directoryPath) {
+        if (prefix == null) return true;
+
+        String inRoot = pathInRoot(directoryPath) + "/";
+        String full = directoryPath + "/";
+        return inRoot.startsWith(prefix) || prefix.startsWith(inRoot)
+                || full.startsWith(prefix) || prefix.startsWith(full);
+    }
+
+    private static String pathInRoot(String path) {
+        int slash = path.indexOf('/');
+        return slash < 0 ? "" : path.substring(slash + 1);
+    }
+
+    private static int indexOfWildcard(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if ("*?[{".indexOf(text.charAt(i)) >= 0) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Translates a glob; {@code **} crosses directories, {@code *} and {@code ?} do not.
+     * Unterminated groups are closed so that queries still compile while being typed.
+     */
+    private static String globToRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        int groups = 0;
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            switch (c) {
+                case '*':
+                    if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                        i++;
+                        if (i + 1 < glob.length() && glob.charAt(i + 1) == '/') {
+                            i++;
+                            regex.append("(?:.*/)?");
+                        } else {
+                            regex.append(".*");
+                        }
+                    } else {
+                        regex.append("[^/]*");
+                    }
+                    break;
+                case '?':
+                    regex.append("[^/]");
+                    break;
+                case '{':
+                    groups++;
+                    regex.append("(?:");
+                    break;
+                case '}':
+                    if (groups > 0) {
+                        groups--;
+                        regex.append(')');
+                    } else {
+                        regex.append("\\}");
+                    }
+                    break;
+                case ',':
+                    regex.append(groups > 0 ? "|" : ",");
+                    break;
+                case '[':
+                    int close = glob.indexOf(']', i + 1);
+                    if (close > i + 1) {
+                        String set = glob.substring(i + 1, close).replace("\\", "\\\\").replace("[", "\\[");
+                        regex.append('[').append(set.startsWith("!") ? "^" + set.substring(1) : set).append(']');
+                        i = close;
+                    } else {
+                        regex.append("\\[");
+                    }
+                    break;
+                default:
+                    if ("\\.^$+()|]".indexOf(c) >= 0) regex.append('\\');
+                    regex.append(c);
+            }
+        }
+        while (groups-- > 0) {
+            regex.append(')');
+        }
+        return regex.toString();
+    }
+}
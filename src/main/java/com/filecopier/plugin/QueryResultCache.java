@@ -0,0 +1,85 @@
+package com.filecopier.plugin;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of # query to ranked suggestions. A cached query is dropped
+ * as soon as a path it could match is added or removed, so served results are
+ * always the ones a fresh search would return.
+ */
+final class QueryResultCache {
+    private final Map<String, CachedResult> results;
+    private long generation = 0;
+
+    QueryResultCache(int capacity) {
+        results = new LinkedHashMap<String, CachedResult>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Gets the cached results for the query, if computed with at least the given limit
+     */
+    synchronized List<FileSuggestion> get(String query, int limit) {
+        CachedResult cached = results.get(query);
+        if (cached == null || cached.limit < limit) return null;
+        return cached.suggestions.size() > limit ? cached.suggestions.subList(0, limit) : cached.suggestions;
+    }
+
+    /**
+     * Generation to pass to {@link #put}; taken before the search starts
+     */
+    synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Caches results, unless an invalidation happened while they were computed
+     */
+    synchronized void put(String query, int limit, List<FileSuggestion> suggestions, long searchGeneration) {
+        if (searchGeneration != generation) return;
+        results.put(query, new CachedResult(PathQuery.compile(query), limit, List.copyOf(suggestions)));
+    }
+
+    /**
+     * Drops every cached query matching one of the changed paths
+     */
+    synchronized void invalidate(Collection<String> changedPaths) {
+        if (changedPaths.isEmpty()) return;
+
+        generation++;
+        results.values().removeIf(cached -> {
+            for (String path : changedPaths) {
+                // Folder status is unknown here; treating paths as files only over-invalidates
+                if (cached.query.matches(path, false)) return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Drops all cached queries, e.g. after ignore rules or content roots changed
+     */
+    synchronized void clear() {
+        generation++;
+        results.clear();
+    }
+
+    private static final class CachedResult {
+        final PathQuery query;
+        final int limit;
+        final List<FileSuggestion> suggestions;
+
+        CachedResult(PathQuery query, int limit, List<FileSuggestion> suggestions) {
+            this.query = query;
+            this.limit = limit;
+            this.suggestions = suggestions;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.filecopier.plugin;
+
+import com.filecopier.plugin.FileCopierService.FileItem;
+import com.intellij.openapi.components.PersistentStateComponent;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.components.State;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.components.Storage;
+import com.intellij.openapi.components.StoragePathMacros;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Named selections saved in the project's workspace file, each with a manifest
+ * of the files and folders its items expanded to: file sizes and timestamps, and
+ * the number of children of each walked folder, which the VFS updates whenever
+ * a child is created or deleted. As long as every manifest entry is unchanged,
+ * the set is copied from the manifest instead of walking its folders again.
+ * Sizes and timestamps are machine-local, hence the workspace file rather than
+ * the shared project configuration.
+ */
+@Service
+@State(name = "FileCopierSelectionSets", storages = @Storage(StoragePathMacros.WORKSPACE_FILE))
+public final class SelectionSets implements PersistentStateComponent<SelectionSets.SetsState> {
+    private final Project project;
+    private SetsState state = new SetsState();
+    // The items of the set loaded last and its validated manifest, grouped by item index
+    private List<FileItem> loadedItems;
+    private Map<Integer, List<ManifestEntry>> loadedManifest;
+
+    public SelectionSets(Project project) {
+        this.project = project;
+    }
+
+    /**
+     * Gets the selection sets of the specified project
+     */
+    public static SelectionSets getInstance(Project project) {
+        return project.getService(SelectionSets.class);
+    }
+
+    @Override
+    public @NotNull SetsState getState() {
+        return state;
+    }
+
+    @Override
+    public void loadState(@NotNull SetsState state) {
+        this.state = state;
+    }
+
+    public synchronized List<String> getNames() {
+        List<String> names = new ArrayList<>();
+        for (SavedSet set : state.sets) {
+            names.add(set.name);
+        }
+        return names;
+    }
+
+    /**
+     * Saves the items under the name, replacing a set with the same name
+     */
+    synchronized void save(String name, List<FileItem> items, List<ManifestEntry> manifest) {
+        SavedSet set = new SavedSet();
+        set.name = name;
+        for (FileItem item : items) {
+            SavedItem saved = new SavedItem();
+            saved.path = item.getPath();
+            saved.kind = item.getKind().name();
+            saved.content = item.getContent();
+            saved.filter = item.getFilter();
+            set.items.add(saved);
+        }
+        set.manifest = new ArrayList<>(manifest);
+
+        state.sets.removeIf(existing -> existing.name.equals(name));
+        state.sets.add(set);
+    }
+
+    /**
+     * Restores the items of the set and, if its manifest is still current,
+     * remembers it for the next copy; null if there is no such set
+     */
+    synchronized List<FileItem> load(String name) {
+        for (SavedSet set : state.sets) {
+            if (!set.name.equals(name)) continue;
+
+            List<FileItem> items = new ArrayList<>();
+            for (SavedItem saved : set.items) {
+                items.add(new FileItem(saved.path, FileItem.Kind.valueOf(saved.kind), saved.content, saved.filter));
+            }
+
+            Map<Integer, List<ManifestEntry>> byItem = new HashMap<>();
+            for (ManifestEntry entry : set.manifest) {
+                byItem.computeIfAbsent(entry.item, index -> new ArrayList<>()).add(entry);
+            }
+            loadedItems = items;
+            loadedManifest = isCurrent(set.manifest) ? byItem : null;
+            return items;
+        }
+        return null;
+    }
+
+    /**
+     * The manifest of the loaded set, grouped by item index, if the items are
+     * still exactly that set and every entry is unchanged; null otherwise
+     */
+    synchronized Map<Integer, List<ManifestEntry>> getCurrentManifest(List<FileItem> items) {
+        if (loadedManifest == null || !items.equals(loadedItems)) return null;
+
+        List<ManifestEntry> all = new ArrayList<>();
+        loadedManifest.values().forEach(all::addAll);
+        if (!isCurrent(all)) {
+            loadedManifest = null;
+        }
+        return loadedManifest;
+    }
+
+    /**
+     * Stamp check: every file still exists with the same size and timestamp,
+     * every folder with the same number of children
+     */
+    private boolean isCurrent(List<ManifestEntry> manifest) {
+        ContentRoots roots = ContentRoots.collect(project);
+        return ReadAction.compute(() -> {
+            for (ManifestEntry entry : manifest) {
+                VirtualFile file = roots.resolve(entry.path);
+                if (file == null || !file.isValid() || file.isDirectory() != entry.directory) return false;
+
+                boolean unchanged = entry.directory
+                        ? file.getChildren().length == entry.size
+                        : file.getTimeStamp() == entry.stamp && file.getLength() == entry.size;
+                if (!unchanged) return false;
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Serialized sets; public fields are persisted by the platform
+     */
+    public static class SetsState {
+        public List<SavedSet> sets = new ArrayList<>();
+    }
+
+    public static class SavedSet {
+        public String name;
+        public List<SavedItem> items = new ArrayList<>();
+        public List<ManifestEntry> manifest = new ArrayList<>();
+    }
+
+    public static class SavedItem {
+        public String path;
+        public String kind;
+        public String content;
+        public String filter;
+    }
+
+    /**
+     * A file or folder an item expanded to when the set was saved. The size of
+     * a folder is its number of children; checkOnly marks folders a filtered
+     * walk went through, which are validated but not copied.
+     */
+    public static class ManifestEntry {
+        public int item;
+        public String path;
+        public boolean directory;
+        public long size;
+        public long stamp;
+        public boolean checkOnly;
+
+        public ManifestEntry() {
+        }
+
+        ManifestEntry(int item, String path, VirtualFile file, boolean checkOnly) {
+            this.item = item;
+            this.path = path;
+            this.directory = file.isDirectory();
+            this.size = directory ? ReadAction.compute(() -> file.getChildren().length) : file.getLength();
+            this.stamp = file.getTimeStamp();
+            this.checkOnly = checkOnly;
+        }
+    }
+}
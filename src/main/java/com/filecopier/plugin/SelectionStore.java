@@ -0,0 +1,108 @@
+package com.filecopier.plugin;
+
+import com.filecopier.plugin.FileCopierService.FileItem;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.project.Project;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The single source of truth for the selected items of a project. Every change
+ * publishes a new immutable {@link Snapshot} with a higher version, so
+ * background tasks bundle one consistent selection without locking while the
+ * EDT keeps editing it.
+ */
+@Service
+public final class SelectionStore {
+    /**
+     * An immutable view of the selection at one version
+     */
+    public static final class Snapshot {
+        private final List<FileItem> items;
+        private final long version;
+
+        private Snapshot(List<FileItem> items, long version) {
+            this.items = items;
+            this.version = version;
+        }
+
+        public List<FileItem> getItems() {
+            return items;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public boolean isEmpty() {
+            return items.isEmpty();
+        }
+    }
+
+    private final AtomicReference<Snapshot> current =
+            new AtomicReference<>(new Snapshot(Collections.emptyList(), 0));
+
+    /**
+     * Gets the selection store for the specified project
+     */
+    public static SelectionStore getInstance(Project project) {
+        return project.getService(SelectionStore.class);
+    }
+
+    /**
+     * The current selection; never changes once returned
+     */
+    public Snapshot getSnapshot() {
+        return current.get();
+    }
+
+    /**
+     * Appends the item unless it is already selected
+     *
+     * @return whether the selection changed
+     */
+    public boolean add(FileItem item) {
+        while (true) {
+            Snapshot snapshot = current.get();
+            if (snapshot.items.contains(item)) return false;
+
+            List<FileItem> items = new ArrayList<>(snapshot.items.size() + 1);
+            items.addAll(snapshot.items);
+            items.add(item);
+            if (current.compareAndSet(snapshot, new Snapshot(Collections.unmodifiableList(items), snapshot.version + 1))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Replaces the whole selection, e.g. with a loaded selection set
+     */
+    public void replace(List<FileItem> items) {
+        while (true) {
+            Snapshot snapshot = current.get();
+            if (current.compareAndSet(snapshot, new Snapshot(List.copyOf(items), snapshot.version + 1))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes all items
+     *
+     * @return whether the selection changed
+     */
+    public boolean clear() {
+        while (true) {
+            Snapshot snapshot = current.get();
+            if (snapshot.items.isEmpty()) return false;
+
+            if (current.compareAndSet(snapshot, new Snapshot(Collections.emptyList(), snapshot.version + 1))) {
+                return true;
+            }
+        }
+    }
+}
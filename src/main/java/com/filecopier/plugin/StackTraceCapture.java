@@ -0,0 +1,134 @@
+package com.filecopier.plugin;
+
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Turns a pasted stack trace into a bundle snippet: the trace itself followed
+ * by a window of lines around every frame that resolves to a project file.
+ */
+final class StackTraceCapture {
+    // at [loader/module@version/]com.foo.Bar$Inner.method(Bar.java:123)
+    private static final Pattern FRAME = Pattern.compile(
+            "at\\s+(?:[^\\s(]*/)?([\\w$.]+)\\.[\\w$<>\\-]+\\(([^:()]+):(\\d+)\\)");
+
+    private StackTraceCapture() {
+    }
+
+    /**
+     * Whether the text contains at least one stack frame with a line number
+     */
+    static boolean containsFrames(String text) {
+        return FRAME.matcher(text).find();
+    }
+
+    /**
+     * Resolves the frames of the trace and formats the snippet. Every file is
+     * read once, and only up to the last line any of its windows needs.
+     */
+    static String capture(Project project, String trace, int contextLines) {
+        ContentRoots roots = ContentRoots.collect(project);
+        ClassFileIndex classFileIndex = ClassFileIndex.getInstance(project);
+
+        // Line windows per file, in order of first appearance
+        Map<VirtualFile, List<int[]>> windows = new LinkedHashMap<>();
+        Matcher matcher = FRAME.matcher(trace);
+        while (matcher.find()) {
+            VirtualFile file = classFileIndex.find(matcher.group(1), matcher.group(2));
+            if (file == null || !file.isValid()) continue;
+
+            int line = Integer.parseInt(matcher.group(3));
+            windows.computeIfAbsent(file, f -> new ArrayList<>())
+                    .add(new int[]{Math.max(1, line - contextLines), line + contextLines});
+        }
+
+        StringBuilder snippet = new StringBuilder("### Stack Trace ###\n").append(trace.trim()).append("\n\n");
+        for (Map.Entry<VirtualFile, List<int[]>> entry : windows.entrySet()) {
+            String relativePath = roots.getRelativePath(entry.getKey());
+            if (relativePath == null) continue;
+
+            try {
+                appendWindows(snippet, relativePath, entry.getKey(), mergeWindows(entry.getValue()));
+            } catch (IOException e) {
+                snippet.append("### Error reading ").append(relativePath).append(": ")
+                        .append(e.getMessage()).append(" ###\n\n");
+            }
+        }
+        return snippet.toString();
+    }
+
+    /**
+     * Sorts 1-based inclusive windows by start and merges overlapping and adjacent ones
+     */
+    private static List<int[]> mergeWindows(List<int[]> fileWindows) {
+        fileWindows.sort((a, b) -> Integer.compare(a[0], b[0]));
+        List<int[]> merged = new ArrayList<>();
+        for (int[] window : fileWindows) {
+            int[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && window[0] <= last[1] + 1) {
+                last[1] = Math.max(last[1], window[1]);
+            } else {
+                merged.add(window);
+            }
+        }
+        return merged;
+    }
+
+    private static void appendWindows(StringBuilder snippet, String relativePath, VirtualFile file,
+                                      List<int[]> fileWindows) throws IOException {
+        Document document = FileDocumentManager.getInstance().getCachedDocument(file);
+
+        if (document != null) {
+            // Random access through the document's line index
+            ReadAction.run(() -> {
+                CharSequence text = document.getImmutableCharSequence();
+                for (int[] window : fileWindows) {
+                    // Frames of an outdated trace may point past the end of the file
+                    if (window[0] > document.getLineCount()) break;
+                    int first = window[0] - 1;
+                    int last = Math.min(window[1], document.getLineCount()) - 1;
+                    appendHeader(snippet, relativePath, first + 1, last + 1);
+                    snippet.append(text, document.getLineStartOffset(first), document.getLineEndOffset(last)).append("\n\n");
+                }
+            });
+            return;
+        }
+
+        // Stream the file once, stopping after the last window
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(file.getInputStream(), file.getCharset()))) {
+            int lineNumber = 0;
+            String line = null;
+            for (int[] window : fileWindows) {
+                while (lineNumber < window[0] - 1 && (line = reader.readLine()) != null) {
+                    lineNumber++;
+                }
+                StringBuilder lines = new StringBuilder();
+                int first = lineNumber + 1;
+                while (lineNumber < window[1] && (line = reader.readLine()) != null) {
+                    lineNumber++;
+                    lines.append(line).append("\n");
+                }
+                if (lines.length() == 0) break;
+                appendHeader(snippet, relativePath, first, lineNumber);
+                snippet.append(lines).append("\n");
+            }
+        }
+    }
+
+    private static void appendHeader(StringBuilder snippet, String relativePath, int first, int last) {
+        snippet.append("### File: ").append(relativePath).append(':').append(first).append('-').append(last).append(" ###\n");
+    }
+}
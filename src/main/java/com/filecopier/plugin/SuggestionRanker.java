@@ -0,0 +1,77 @@
+package com.filecopier.plugin;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Ranks suggestions: folders first, then by path in catalog order, so that
+ * matches can be streamed straight out of the sorted catalog. Results found
+ * per content root are merged here.
+ */
+final class SuggestionRanker {
+    static final Comparator<FileSuggestion> ORDER = (a, b) -> {
+        if (a.isDirectory != b.isDirectory) {
+            return a.isDirectory ? -1 : 1;
+        }
+        return a.path.compareTo(b.path);
+    };
+
+    private SuggestionRanker() {
+    }
+
+    /**
+     * Walks the merged order of streams that each produce results sorted by
+     * {@link #ORDER}, pulling from them page by page, so only the current head
+     * of each stream is held. Not thread-safe; use from one task at a time.
+     */
+    static final class RankedCursor {
+        private final PriorityQueue<StreamCursor> heads =
+                new PriorityQueue<>((a, b) -> ORDER.compare(a.current(), b.current()));
+
+        RankedCursor(List<Iterator<FileSuggestion>> rankedStreams) {
+            for (Iterator<FileSuggestion> stream : rankedStreams) {
+                if (stream.hasNext()) heads.add(new StreamCursor(stream));
+            }
+        }
+
+        boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        /**
+         * The next results in rank order, at most count of them
+         */
+        List<FileSuggestion> next(int count) {
+            List<FileSuggestion> page = new ArrayList<>(Math.min(count, 256));
+            while (!heads.isEmpty() && page.size() < count) {
+                StreamCursor head = heads.poll();
+                page.add(head.current());
+                if (head.advance()) heads.add(head);
+            }
+            return page;
+        }
+    }
+
+    private static final class StreamCursor {
+        private final Iterator<FileSuggestion> stream;
+        private FileSuggestion current;
+
+        StreamCursor(Iterator<FileSuggestion> stream) {
+            this.stream = stream;
+            this.current = stream.next();
+        }
+
+        FileSuggestion current() {
+            return current;
+        }
+
+        boolean advance() {
+            if (!stream.hasNext()) return false;
+            current = stream.next();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.filecopier.plugin.actions;
+
+import com.filecopier.plugin.EditorSnippet;
+import com.filecopier.plugin.FileCopierService;
+import com.filecopier.plugin.FileCopierSettings;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.CommonDataKeys;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.project.Project;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Action to add the editor selection, with context lines, to the selected files
+ */
+public class CaptureSelectionAction extends AnAction {
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent e) {
+        Project project = e.getProject();
+        Editor editor = e.getData(CommonDataKeys.EDITOR);
+        if (project == null || editor == null) return;
+
+        int contextLines = FileCopierSettings.getInstance().getState().selectionContextLines;
+        EditorSnippet snippet = EditorSnippet.capture(project, editor, contextLines);
+        if (snippet == null) return;
+
+        FileCopierService service = FileCopierService.getInstance(project);
+        service.addSelectedSnippet(snippet);
+    }
+
+    @Override
+    public void update(@NotNull AnActionEvent e) {
+        Project project = e.getProject();
+        e.getPresentation().setEnabled(project != null && e.getData(CommonDataKeys.EDITOR) != null);
+    }
+}
@@ -0,0 +1,36 @@
+package com.filecopier.plugin.actions;
+
+import com.filecopier.plugin.FileCopierService;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.CommonDataKeys;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.project.Project;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Action to capture the stack trace selected in a console, or the whole console
+ * output, together with the source lines around its frames
+ */
+public class CaptureStackTraceAction extends AnAction {
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent e) {
+        Project project = e.getProject();
+        Editor editor = e.getData(CommonDataKeys.EDITOR);
+        if (project == null || editor == null) return;
+
+        String text = editor.getSelectionModel().getSelectedText();
+        if (text == null || text.isEmpty()) {
+            text = editor.getDocument().getText();
+        }
+
+        FileCopierService service = FileCopierService.getInstance(project);
+        service.captureStackTrace(text);
+    }
+
+    @Override
+    public void update(@NotNull AnActionEvent e) {
+        Project project = e.getProject();
+        e.getPresentation().setEnabled(project != null && e.getData(CommonDataKeys.EDITOR) != null);
+    }
+}
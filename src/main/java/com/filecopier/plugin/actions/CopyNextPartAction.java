@@ -0,0 +1,27 @@
+package com.filecopier.plugin.actions;
+
+import com.filecopier.plugin.FileCopierService;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.project.Project;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Action to copy the next part of a multi-part copy
+ */
+public class CopyNextPartAction extends AnAction {
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent e) {
+        Project project = e.getProject();
+        if (project == null) return;
+
+        FileCopierService service = FileCopierService.getInstance(project);
+        service.copyNextPart();
+    }
+
+    @Override
+    public void update(@NotNull AnActionEvent e) {
+        Project project = e.getProject();
+        e.getPresentation().setEnabled(project != null);
+    }
+}
\ No newline at end of file
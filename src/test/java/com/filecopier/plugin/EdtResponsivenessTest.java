@@ -0,0 +1,248 @@
+package com.filecopier.plugin;
+
+import com.intellij.ide.IdeEventQueue;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.WriteAction;
+import com.intellij.openapi.roots.ModuleRootManager;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.vfs.VfsUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.testFramework.PlatformTestUtil;
+import com.intellij.testFramework.fixtures.BasePlatformTestCase;
+import com.intellij.ui.components.JBList;
+import com.intellij.ui.components.JBTextArea;
+import com.intellij.util.TimeoutUtil;
+
+import java.awt.AWTEvent;
+import java.awt.datatransfer.Clipboard;
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.StringSelection;
+import java.awt.datatransfer.Transferable;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Drives typing, suggestion selection and copy in the chat panel on a generated
+ * project of about 100k files. The panel's own keystroke, selection and copy
+ * handlers are timed on the EDT, and end-to-end latencies are checked against
+ * performance budgets; other events, such as repaints or platform housekeeping,
+ * are dispatched but not timed, so a slow one from outside the panel does not
+ * fail the build.
+ */
+public class EdtResponsivenessTest extends BasePlatformTestCase {
+    private static final int PACKAGES = 100;
+    private static final int MODULES_PER_PACKAGE = 10;
+    private static final int FILES_PER_MODULE = 100;
+
+    // Longest a single keystroke, selection or copy handler may hold the EDT
+    private static final long MAX_EDT_BLOCK_MS = 50;
+    private static final int TYPING_BUDGET_MS = 500;
+    private static final int SELECTION_BUDGET_MS = 100;
+    private static final int COPY_BUDGET_MS = 3000;
+    private static final long TIMEOUT_MS = 60_000;
+
+    private ChatPanel panel;
+    private Clipboard clipboard;
+    private String previousIgnoreHeadless;
+    // Off while warming up, when first-time class loading and caching would dominate
+    private boolean measuring = false;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        // Keep background tasks in the background, as in the IDE, instead of running them on the calling thread
+        previousIgnoreHeadless = System.setProperty("intellij.progress.task.ignoreHeadless", "true");
+
+        generateProject();
+        SelectionStore.getInstance(getProject()).clear();
+        clipboard = new Clipboard("File Copier test");
+        panel = new ChatPanel(getProject());
+        Disposer.register(getTestRootDisposable(), panel);
+        panel.setClipboard(clipboard);
+        awaitCatalog();
+        warmUp();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        try {
+            SelectionStore.getInstance(getProject()).clear();
+            BundlePrewarmer.getInstance(getProject()).clear();
+            if (previousIgnoreHeadless == null) {
+                System.clearProperty("intellij.progress.task.ignoreHeadless");
+            } else {
+                System.setProperty("intellij.progress.task.ignoreHeadless", previousIgnoreHeadless);
+            }
+            panel = null;
+        } catch (Throwable e) {
+            addSuppressedException(e);
+        } finally {
+            super.tearDown();
+        }
+    }
+
+    public void testTypingQueryShowsSuggestionsWithoutBlockingEdt() {
+        PlatformTestUtil.startPerformanceTest("typing a # query until its suggestions show", TYPING_BUDGET_MS, () -> {
+            type("#Component42_7_1");
+            dispatchUntil(() -> panel.isShowingSuggestions() && firstSuggestionContains("Component42_7_1"),
+                    "suggestions for the typed query");
+        }).setup(this::resetInput).attempts(3).assertTiming();
+    }
+
+    public void testSelectingSuggestionWithoutBlockingEdt() {
+        PlatformTestUtil.startPerformanceTest("selecting a folder suggestion", SELECTION_BUDGET_MS, () -> {
+            JBList<FileSuggestion> list = panel.getSuggestionList();
+            int index = indexOfFolder(list, "/pkg12");
+            assertTrue("Folder suggestion for pkg12", index >= 0);
+
+            long start = System.nanoTime();
+            list.setSelectedIndex(index);
+            assertEdtBlock(start, "selecting a suggestion");
+            dispatchUntil(() -> !SelectionStore.getInstance(getProject()).getSnapshot().isEmpty(), "selection");
+        }).setup(() -> {
+            SelectionStore.getInstance(getProject()).clear();
+            resetInput();
+            type("#pkg12");
+            dispatchUntil(() -> panel.isShowingSuggestions() && indexOfFolder(panel.getSuggestionList(), "/pkg12") >= 0,
+                    "folder suggestion");
+        }).attempts(3).assertTiming();
+    }
+
+    public void testCopyingFolderWithoutBlockingEdt() {
+        resetInput();
+        type("#pkg3");
+        dispatchUntil(() -> indexOfFolder(panel.getSuggestionList(), "/pkg3") >= 0, "folder suggestion");
+        panel.getSuggestionList().setSelectedIndex(indexOfFolder(panel.getSuggestionList(), "/pkg3"));
+        dispatchUntil(() -> !SelectionStore.getInstance(getProject()).getSnapshot().isEmpty(), "selection");
+
+        PlatformTestUtil.startPerformanceTest("copying a folder of 1000 files", COPY_BUDGET_MS, () -> {
+            long start = System.nanoTime();
+            panel.copySelectedFilesToClipboard();
+            assertEdtBlock(start, "starting a copy");
+            dispatchUntil(() -> clipboardText().contains("### File: "), "clipboard contents");
+        }).setup(() -> clipboard.setContents(new StringSelection(""), null)).attempts(3).assertTiming();
+
+        String copied = clipboardText();
+        assertEquals(FILES_PER_MODULE * MODULES_PER_PACKAGE, copied.split("### File: ", -1).length - 1);
+    }
+
+    /**
+     * Creates pkg0..pkg99/module0..module9/Component{p}_{m}_{f}.java below the content root
+     */
+    private void generateProject() throws Exception {
+        VirtualFile root = ModuleRootManager.getInstance(getModule()).getContentRoots()[0];
+        WriteAction.run(() -> {
+            for (int p = 0; p < PACKAGES; p++) {
+                VirtualFile pkg = root.createChildDirectory(this, "pkg" + p);
+                for (int m = 0; m < MODULES_PER_PACKAGE; m++) {
+                    VirtualFile module = pkg.createChildDirectory(this, "module" + m);
+                    for (int f = 0; f < FILES_PER_MODULE; f++) {
+                        String name = "Component" + p + "_" + m + "_" + f;
+                        VirtualFile file = module.createChildData(this, name + ".java");
+                        VfsUtil.saveText(file, "package pkg" + p + ".module" + m + ";\n\npublic class " + name + " {\n}\n");
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Waits for the initial catalog walk, which happens once per project, not per keystroke
+     */
+    private void awaitCatalog() {
+        Future<?> loaded = ApplicationManager.getApplication().executeOnPooledThread(
+                () -> PathCatalog.getInstance(getProject()).search("Component0_0_0", 1));
+        dispatchUntil(loaded::isDone, "path catalog");
+    }
+
+    private void warmUp() {
+        type("#Component0_0_");
+        dispatchUntil(panel::isShowingSuggestions, "warm-up suggestions");
+        resetInput();
+        measuring = true;
+    }
+
+    private void resetInput() {
+        panel.getInputField().setText("");
+        dispatchUntil(() -> !panel.isShowingSuggestions(), "hidden suggestions");
+    }
+
+    /**
+     * Types the text one character at a time, dispatching the events each keystroke causes
+     */
+    private void type(String text) {
+        JBTextArea input = panel.getInputField();
+        for (char c : text.toCharArray()) {
+            long start = System.nanoTime();
+            input.insert(String.valueOf(c), input.getCaretPosition());
+            assertEdtBlock(start, "typing '" + c + "'");
+            dispatchPendingEvents();
+        }
+    }
+
+    private void dispatchPendingEvents() {
+        IdeEventQueue queue = IdeEventQueue.getInstance();
+        while (queue.peekEvent() != null) {
+            dispatchNextEvent(queue);
+        }
+    }
+
+    /**
+     * Dispatches EDT events until the condition holds
+     */
+    private void dispatchUntil(BooleanSupplier condition, String what) {
+        IdeEventQueue queue = IdeEventQueue.getInstance();
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Timed out waiting for " + what);
+            }
+            if (queue.peekEvent() == null) {
+                TimeoutUtil.sleep(1);
+            } else {
+                dispatchNextEvent(queue);
+            }
+        }
+    }
+
+    private static void dispatchNextEvent(IdeEventQueue queue) {
+        AWTEvent event;
+        try {
+            event = queue.getNextEvent();
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+        queue.dispatchEvent(event);
+    }
+
+    private void assertEdtBlock(long startNanos, String what) {
+        if (!measuring) return;
+
+        long blockedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        assertTrue("EDT blocked for " + blockedMs + " ms by " + what + ", budget is " + MAX_EDT_BLOCK_MS + " ms",
+                blockedMs <= MAX_EDT_BLOCK_MS);
+    }
+
+    private boolean firstSuggestionContains(String text) {
+        JBList<FileSuggestion> list = panel.getSuggestionList();
+        return list.getModel().getSize() > 0 && list.getModel().getElementAt(0).path.contains(text);
+    }
+
+    private static int indexOfFolder(JBList<FileSuggestion> list, String suffix) {
+        for (int i = 0; i < list.getModel().getSize(); i++) {
+            FileSuggestion suggestion = list.getModel().getElementAt(i);
+            if (suggestion.isDirectory && suggestion.filter == null && suggestion.path.endsWith(suffix)) return i;
+        }
+        return -1;
+    }
+
+    private String clipboardText() {
+        Transferable contents = clipboard.getContents(null);
+        try {
+            return contents != null ? (String) contents.getTransferData(DataFlavor.stringFlavor) : "";
+        } catch (Exception e) {
+            return "";
+        }
+    }
+}